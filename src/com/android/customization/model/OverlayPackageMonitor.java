@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.model;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.Uri;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Process-wide listener of package installs, updates and removals, shared by the overlay option
+ * providers. Those are held by static managers for the life of the process, so instead of reloading
+ * everything on every fetch they keep their options and only rebuild the ones whose package is
+ * reported here.
+ */
+public class OverlayPackageMonitor {
+
+    /**
+     * Interface to be notified when a package changes.
+     */
+    public interface PackageChangeListener {
+
+        /**
+         * Called when the given package was added, updated, changed or removed.
+         */
+        void onPackageChanged(String packageName);
+    }
+
+    private static OverlayPackageMonitor sInstance;
+
+    private final Set<PackageChangeListener> mListeners = new CopyOnWriteArraySet<>();
+
+    private final BroadcastReceiver mPackageChangeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Uri data = intent.getData();
+            if (data == null) {
+                return;
+            }
+            notifyPackageChanged(data.getSchemeSpecificPart());
+        }
+    };
+
+    private OverlayPackageMonitor(Context context) {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        context.registerReceiver(mPackageChangeReceiver, filter);
+    }
+
+    public static synchronized OverlayPackageMonitor getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new OverlayPackageMonitor(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    public void addListener(PackageChangeListener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeListener(PackageChangeListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /** Notifies the listeners that the given package changed, as the package broadcasts do. */
+    @VisibleForTesting
+    public void notifyPackageChanged(String packageName) {
+        for (PackageChangeListener listener : mListeners) {
+            listener.onPackageChanged(packageName);
+        }
+    }
+}
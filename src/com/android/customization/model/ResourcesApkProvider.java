@@ -11,12 +11,17 @@ import android.util.Log;
 
 import androidx.annotation.ColorInt;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public abstract class ResourcesApkProvider {
     private static final String TAG = "ResourcesApkProvider";
 
     protected final Context mContext;
     protected final String mStubPackageName;
     protected final Resources mStubApkResources;
+    // Resource ids in the stub APK, keyed by "type/name".
+    private final Map<String, Integer> mIdentifiers = new HashMap<>();
 
     public ResourcesApkProvider(Context context, String stubPackageName) {
         mContext = context;
@@ -41,29 +46,42 @@ public abstract class ResourcesApkProvider {
     }
 
     protected String[] getItemsFromStub(String arrayName) {
-        int themesListResId = mStubApkResources.getIdentifier(arrayName, "array",  mStubPackageName);
+        int themesListResId = getIdentifierFromStub(arrayName, "array");
         return mStubApkResources.getStringArray(themesListResId);
     }
 
     protected String getItemStringFromStub(String prefix, String itemName) {
-        int resourceId = mStubApkResources.getIdentifier(String.format("%s%s", prefix, itemName),
-                "string", mStubPackageName);
+        int resourceId = getIdentifierFromStub(prefix + itemName, "string");
         return mStubApkResources.getString(resourceId);
     }
 
     protected Drawable getItemDrawableFromStub(String prefix, String itemName) {
-        int resourceId = mStubApkResources.getIdentifier(String.format("%s%s", prefix, itemName),
-                "drawable", mStubPackageName);
+        int resourceId = getIdentifierFromStub(prefix + itemName, "drawable");
         return mStubApkResources.getDrawable(resourceId, null);
     }
 
     @ColorInt
     protected int getItemColorFromStub(String prefix, String itemName) {
-        int resourceId = mStubApkResources.getIdentifier(String.format("%s%s", prefix, itemName),
-                "color", mStubPackageName);
+        int resourceId = getIdentifierFromStub(prefix + itemName, "color");
         return mStubApkResources.getColor(resourceId, null);
     }
 
+    /**
+     * Returns the id of the given stub resource, or 0 if there's none. Ids can't change for the
+     * life of {@link #mStubApkResources}, so they're only looked up by name once.
+     */
+    private int getIdentifierFromStub(String name, String type) {
+        String key = type + "/" + name;
+        synchronized (mIdentifiers) {
+            Integer resourceId = mIdentifiers.get(key);
+            if (resourceId == null) {
+                resourceId = mStubApkResources.getIdentifier(name, type, mStubPackageName);
+                mIdentifiers.put(key, resourceId);
+            }
+            return resourceId;
+        }
+    }
+
     public boolean isAvailable() {
         return mStubApkResources != null;
     }
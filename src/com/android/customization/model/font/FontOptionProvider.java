@@ -29,14 +29,17 @@ import android.graphics.Typeface;
 import android.os.UserHandle;
 import android.util.Log;
 
+import com.android.customization.model.OverlayPackageMonitor;
 import com.android.customization.model.ResourceConstants;
 import com.android.customization.model.theme.OverlayManagerCompat;
 import com.android.wallpaper.R;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class FontOptionProvider {
 
@@ -44,46 +47,101 @@ public class FontOptionProvider {
 
     private Context mContext;
     private PackageManager mPm;
-    private final List<String> mOverlayPackages;
+    private final OverlayManagerCompat mOverlayManager;
+    private final List<String> mOverlayPackages = new ArrayList<>();
     private final List<FontOption> mOptions = new ArrayList<>();
+    // Options already built for each overlay package, keyed by package name.
+    private final Map<String, LoadedFont> mLoadedFonts = new HashMap<>();
+    private FontOption mDefaultOption;
     private String mActiveOverlay;
+    private boolean mOverlayPackagesStale = true;
+
+    // Overlays that changed since their option was built.
+    private final Set<String> mDirtyPackages = new HashSet<>();
 
     public FontOptionProvider(Context context, OverlayManagerCompat manager) {
         mContext = context;
         mPm = context.getPackageManager();
-        mOverlayPackages = new ArrayList<>();
-        mOverlayPackages.addAll(manager.getOverlayPackagesForCategory(OVERLAY_CATEGORY_FONT,
-                UserHandle.myUserId(), ResourceConstants.getPackagesToOverlay(mContext)));
+        mOverlayManager = manager;
         mActiveOverlay = manager.getEnabledPackageName(ANDROID_PACKAGE, OVERLAY_CATEGORY_FONT);
+        OverlayPackageMonitor.getInstance(context).addListener(this::onPackageChanged);
     }
 
-    public List<FontOption> getOptions(boolean reload) {
-        if (reload) mOptions.clear();
-        if (mOptions.isEmpty()) loadOptions();
+    /**
+     * Returns the available font options. Only overlays reported as changed since the last call
+     * are loaded again, {@code reload} also checks every overlay's lastUpdateTime.
+     */
+    public synchronized List<FontOption> getOptions(boolean reload) {
+        if (reload) mOverlayPackagesStale = true;
+        if (mOverlayPackagesStale || !mDirtyPackages.isEmpty() || mOptions.isEmpty()) {
+            loadOptions(reload);
+        }
         return mOptions;
     }
 
-    private void loadOptions() {
+    private synchronized void onPackageChanged(String packageName) {
+        // Any package could be a newly installed font overlay, so the overlay list is queried again
+        // on the next fetch, but only this package's option gets rebuilt.
+        mOverlayManager.invalidateOverlays();
+        mOverlayPackagesStale = true;
+        if (mLoadedFonts.containsKey(packageName)) {
+            mDirtyPackages.add(packageName);
+        }
+    }
+
+    private void loadOptions(boolean checkUpdateTimes) {
+        if (mOverlayPackagesStale) {
+            mOverlayPackages.clear();
+            mOverlayPackages.addAll(mOverlayManager.getOverlayPackagesForCategory(
+                    OVERLAY_CATEGORY_FONT, UserHandle.myUserId(),
+                    ResourceConstants.getPackagesToOverlay(mContext)));
+            mOverlayPackagesStale = false;
+        }
+        mOptions.clear();
         addDefault();
+        // Forget the overlays that have been uninstalled.
+        mLoadedFonts.keySet().retainAll(mOverlayPackages);
         for (String overlayPackage : mOverlayPackages) {
+            LoadedFont loadedFont = mLoadedFonts.get(overlayPackage);
+            boolean dirty = mDirtyPackages.contains(overlayPackage);
+            if (loadedFont != null && !dirty && !checkUpdateTimes) {
+                mOptions.add(loadedFont.mOption);
+                continue;
+            }
             try {
-                Resources overlayRes = mPm.getResourcesForApplication(overlayPackage);
-                Typeface headlineFont = Typeface.create(
-                        getFontFamily(overlayPackage, overlayRes, CONFIG_HEADLINE_FONT_FAMILY),
-                        Typeface.NORMAL);
-                Typeface bodyFont = Typeface.create(
-                        getFontFamily(overlayPackage, overlayRes, CONFIG_BODY_FONT_FAMILY),
-                        Typeface.NORMAL);
-                String label = mPm.getApplicationInfo(overlayPackage, 0).loadLabel(mPm).toString();
-                mOptions.add(new FontOption(overlayPackage, label, headlineFont, bodyFont));
+                long lastUpdateTime = mPm.getPackageInfo(overlayPackage, 0).lastUpdateTime;
+                if (loadedFont == null || dirty || loadedFont.mLastUpdateTime != lastUpdateTime) {
+                    loadedFont = new LoadedFont(lastUpdateTime, loadOption(overlayPackage));
+                    mLoadedFonts.put(overlayPackage, loadedFont);
+                }
+                mOptions.add(loadedFont.mOption);
             } catch (NameNotFoundException | NotFoundException e) {
+                mLoadedFonts.remove(overlayPackage);
                 Log.w(TAG, String.format("Couldn't load font overlay %s, will skip it",
                         overlayPackage), e);
             }
         }
+        mDirtyPackages.clear();
+    }
+
+    private FontOption loadOption(String overlayPackage)
+            throws NameNotFoundException, NotFoundException {
+        Resources overlayRes = mPm.getResourcesForApplication(overlayPackage);
+        Typeface headlineFont = Typeface.create(
+                getFontFamily(overlayPackage, overlayRes, CONFIG_HEADLINE_FONT_FAMILY),
+                Typeface.NORMAL);
+        Typeface bodyFont = Typeface.create(
+                getFontFamily(overlayPackage, overlayRes, CONFIG_BODY_FONT_FAMILY),
+                Typeface.NORMAL);
+        String label = mPm.getApplicationInfo(overlayPackage, 0).loadLabel(mPm).toString();
+        return new FontOption(overlayPackage, label, headlineFont, bodyFont);
     }
 
     private void addDefault() {
+        if (mDefaultOption != null) {
+            mOptions.add(mDefaultOption);
+            return;
+        }
         Resources system = Resources.getSystem();
         Typeface headlineFont = Typeface.create(system.getString(system.getIdentifier(
                 ResourceConstants.CONFIG_HEADLINE_FONT_FAMILY,"string", ANDROID_PACKAGE)),
@@ -92,11 +150,22 @@ public class FontOptionProvider {
                 ResourceConstants.CONFIG_BODY_FONT_FAMILY,
                 "string", ANDROID_PACKAGE)),
                 Typeface.NORMAL);
-        mOptions.add(new FontOption(null, mContext.getString(R.string.default_theme_title),
-                headlineFont, bodyFont));
+        mDefaultOption = new FontOption(null, mContext.getString(R.string.default_theme_title),
+                headlineFont, bodyFont);
+        mOptions.add(mDefaultOption);
     }
 
     private String getFontFamily(String overlayPackage, Resources overlayRes, String configName) {
         return overlayRes.getString(overlayRes.getIdentifier(configName, "string", overlayPackage));
     }
+
+    private static class LoadedFont {
+        private final long mLastUpdateTime;
+        private final FontOption mOption;
+
+        LoadedFont(long lastUpdateTime, FontOption option) {
+            mLastUpdateTime = lastUpdateTime;
+            mOption = option;
+        }
+    }
 }
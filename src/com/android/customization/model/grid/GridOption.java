@@ -67,6 +67,11 @@ public class GridOption implements CustomizationOption<GridOption>, Parcelable {
         this.previewPagesCount = previewPagesCount;
     }
 
+    /** Returns the path data of the icon shape the grid's cells are drawn with. */
+    public String getIconShapePath() {
+        return mIconShapePath;
+    }
+
     public void setIsCurrent(boolean isCurrent) {
         mIsCurrent = isCurrent;
     }
@@ -16,16 +16,21 @@
 package com.android.customization.model.grid;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
+import androidx.annotation.ColorInt;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
 
 import com.android.customization.model.CustomizationManager;
+import com.android.customization.model.OverlayPackageMonitor;
 import com.android.customization.module.CustomizationInjector;
 import com.android.customization.module.logging.ThemesUserEventLogger;
 import com.android.wallpaper.R;
@@ -36,6 +41,7 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 /**
  * {@link CustomizationManager} for interfacing with the launcher to handle {@link GridOption}s.
@@ -49,7 +55,12 @@ public class GridOptionsManager implements CustomizationManager<GridOption> {
 
     private final LauncherGridOptionsProvider mProvider;
     private final ThemesUserEventLogger mEventLogger;
-    private int mGridOptionSize = -1;
+    // Null until the launcher has been asked whether it supports grid options, and again whenever
+    // its grids or any package change, as either may change the answer.
+    private volatile Boolean mIsAvailable;
+    private final Object mAvailabilityLock = new Object();
+    // Incremented on each invalidation, so that a probe started before one doesn't keep its answer.
+    private int mAvailabilityGeneration;
 
     /** Returns the {@link GridOptionsManager} instance. */
     public static GridOptionsManager getInstance(Context context) {
@@ -62,6 +73,8 @@ public class GridOptionsManager implements CustomizationManager<GridOption> {
                     new LauncherGridOptionsProvider(appContext,
                             appContext.getString(R.string.grid_control_metadata_name)),
                     eventLogger);
+            OverlayPackageMonitor.getInstance(appContext).addListener(
+                    sGridOptionsManager::onPackageChanged);
         }
         return sGridOptionsManager;
     }
@@ -70,28 +83,107 @@ public class GridOptionsManager implements CustomizationManager<GridOption> {
     GridOptionsManager(LauncherGridOptionsProvider provider, ThemesUserEventLogger logger) {
         mProvider = provider;
         mEventLogger = logger;
+        mProvider.setOnOptionsInvalidatedListener(this::invalidateAvailability);
     }
 
+    /**
+     * Returns whether the launcher supports grid options, blocking the calling thread on a query to
+     * the launcher if that isn't known yet. Prefer {@link #fetchAvailability(Consumer)}.
+     */
     @Override
     public boolean isAvailable() {
-        if (mGridOptionSize < 0) {
-            try {
-                mGridOptionSize = sExecutorService.submit(() -> {
-                    List<GridOption> gridOptions = mProvider.fetch(/* reload= */true);
-                    return gridOptions == null ? 0 : gridOptions.size();
-                }).get();
-            } catch (InterruptedException | ExecutionException e) {
-                Log.w(TAG, "could not get gridOptionSize", e);
+        Boolean isAvailable = mIsAvailable;
+        if (isAvailable != null) {
+            return isAvailable;
+        }
+        try {
+            return sExecutorService.submit(this::probeAvailability).get();
+        } catch (InterruptedException | ExecutionException e) {
+            Log.w(TAG, "could not get gridOptionSize", e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether the launcher supports grid options if that is already known, without
+     * blocking, or null if it hasn't been probed yet.
+     */
+    @Nullable
+    public Boolean getKnownAvailability() {
+        return mIsAvailable;
+    }
+
+    /**
+     * Starts probing whether the launcher supports grid options in the background, so that the
+     * answer, and the grid options themselves, are ready by the time they're needed.
+     */
+    public void prefetchAvailability() {
+        if (mIsAvailable == null) {
+            sExecutorService.submit(this::probeAvailability);
+        }
+    }
+
+    /**
+     * Calls {@code callback} on the main thread with whether the launcher supports grid options,
+     * probing it in the background if that isn't known yet.
+     */
+    public void fetchAvailability(Consumer<Boolean> callback) {
+        Boolean isAvailable = mIsAvailable;
+        if (isAvailable != null) {
+            callback.accept(isAvailable);
+            return;
+        }
+        sExecutorService.submit(() -> {
+            boolean available = probeAvailability();
+            new Handler(Looper.getMainLooper()).post(() -> callback.accept(available));
+        });
+    }
+
+    // Only ever runs on sExecutorService, so the launcher is queried at most once per invalidation.
+    @WorkerThread
+    private boolean probeAvailability() {
+        Boolean isAvailable = mIsAvailable;
+        if (isAvailable != null) {
+            return isAvailable;
+        }
+        int generation;
+        synchronized (mAvailabilityLock) {
+            generation = mAvailabilityGeneration;
+        }
+        List<GridOption> gridOptions = mProvider.fetch(/* reload= */ false);
+        int gridOptionSize = gridOptions == null ? 0 : gridOptions.size();
+        boolean available = gridOptionSize > 1 && mProvider.areGridsAvailable();
+        synchronized (mAvailabilityLock) {
+            if (generation == mAvailabilityGeneration) {
+                mIsAvailable = available;
             }
         }
-        return mGridOptionSize > 1 && mProvider.areGridsAvailable();
+        return available;
+    }
+
+    private void onPackageChanged(String packageName) {
+        // The launcher may have been updated, or another one installed.
+        invalidateAvailability();
     }
 
+    private void invalidateAvailability() {
+        synchronized (mAvailabilityLock) {
+            mAvailabilityGeneration++;
+            mIsAvailable = null;
+        }
+    }
+
+    /**
+     * Applies the given grid. This waits for the launcher to take the new grid, so it must not be
+     * called on the main thread.
+     */
+    @WorkerThread
     @Override
     public void apply(GridOption option, Callback callback) {
+        long startTime = SystemClock.elapsedRealtime();
         int updated = mProvider.applyGrid(option.name);
         if (updated == 1) {
-            mEventLogger.logGridApplied(option);
+            mEventLogger.logGridApplied(option, SystemClock.elapsedRealtime() - startTime);
             callback.onSuccess();
         } else {
             callback.onError(null);
@@ -119,6 +211,15 @@ public class GridOptionsManager implements CustomizationManager<GridOption> {
         });
     }
 
+    /**
+     * Returns the grid options loaded by the last fetch if they're still up to date, without
+     * querying the launcher, or null if they need to be fetched.
+     */
+    @Nullable
+    public List<GridOption> getCachedOptions() {
+        return mProvider.getCachedOptions();
+    }
+
     /**
      * Returns an observable that receives a new value each time that the grid options are changed.
      */
@@ -126,6 +227,24 @@ public class GridOptionsManager implements CustomizationManager<GridOption> {
         return mProvider.getOptionChangeObservable(handler);
     }
 
+    /**
+     * Returns the snapshot of the launcher's workspace preview with the given grid, of the given
+     * size, with its cells drawn in the given color.
+     */
+    public Bitmap getPreviewSnapshot(GridOption option, int width, int height,
+            @ColorInt int color) {
+        return mProvider.getPreviewSnapshot(option, width, height, color);
+    }
+
+    /**
+     * Draws, in the background, the snapshots of the grids next to the given one, so that
+     * switching to them is instant.
+     */
+    public void prefetchPreviewSnapshots(GridOption option, int width, int height,
+            @ColorInt int color) {
+        mProvider.prefetchPreviewSnapshots(option, width, height, color);
+    }
+
     /** Call through content provider API to render preview */
     public void renderPreview(Bundle bundle, String gridName,
             PreviewUtils.WorkspacePreviewCallback callback) {
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.model.grid;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.util.LruCache;
+
+import androidx.annotation.ColorInt;
+
+import com.android.customization.widget.GridTileDrawable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Snapshots of the workspace preview, per grid name. Re-rendering the live preview for another
+ * grid makes the launcher reload its workspace, so the picker covers the preview with the snapshot
+ * of the grid being switched to in the meantime.
+ *
+ * <p>The launcher doesn't serve images of its preview, so a snapshot is drawn from the grid's own
+ * layout: its cells, in the shape of the icons. It can't be captured from the live preview: the
+ * launcher draws it in a surface of its own, embedded in the picker's, which the picker can't read
+ * back. A snapshot is only dropped when the grid it was drawn for changes, which
+ * {@link #retainAll(List)} finds out when the grids are reloaded.
+ *
+ * <p>The snapshots of the grids next to the one being previewed are drawn in the background, so
+ * that switching to them is instant.
+ */
+class GridPreviewSnapshotCache {
+
+    // Fraction of the heap that snapshots are allowed to use.
+    private static final int HEAP_FRACTION = 16;
+
+    private final Executor mExecutor;
+    private final LruCache<String, Snapshot> mSnapshots;
+
+    /**
+     * @param executor the executor the snapshots of the neighboring grids are drawn on.
+     */
+    GridPreviewSnapshotCache(Executor executor) {
+        mExecutor = executor;
+        mSnapshots = new LruCache<String, Snapshot>(
+                (int) (Runtime.getRuntime().maxMemory() / HEAP_FRACTION)) {
+            @Override
+            protected int sizeOf(String key, Snapshot value) {
+                return value.mBitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the snapshot of the workspace preview with the given grid, drawing it if it isn't
+     * cached at the given size and color yet.
+     */
+    Bitmap get(GridOption option, int width, int height, @ColorInt int color) {
+        Snapshot snapshot = mSnapshots.get(option.name);
+        if (snapshot == null || !snapshot.matches(option, width, height, color)) {
+            snapshot = new Snapshot(option, width, height, color);
+            mSnapshots.put(option.name, snapshot);
+        }
+        return snapshot.mBitmap;
+    }
+
+    /**
+     * Draws, in the background, the snapshots of the grids next to the given one in the given
+     * grids that aren't cached at the given size and color yet.
+     */
+    void prefetchAround(List<GridOption> options, GridOption option, int width, int height,
+            @ColorInt int color) {
+        int index = options.indexOf(option);
+        if (index < 0) {
+            return;
+        }
+        for (int i = Math.max(0, index - 1); i <= Math.min(options.size() - 1, index + 1); i++) {
+            GridOption neighbor = options.get(i);
+            if (i == index || isCached(neighbor, width, height, color)) {
+                continue;
+            }
+            mExecutor.execute(() -> get(neighbor, width, height, color));
+        }
+    }
+
+    private boolean isCached(GridOption option, int width, int height, @ColorInt int color) {
+        Snapshot snapshot = mSnapshots.get(option.name);
+        return snapshot != null && snapshot.matches(option, width, height, color);
+    }
+
+    /**
+     * Drops the snapshots of the grids that aren't in the given ones anymore, or that have changed
+     * since their snapshot was drawn. The snapshots of every other grid are kept.
+     */
+    void retainAll(List<GridOption> options) {
+        for (Map.Entry<String, Snapshot> entry : mSnapshots.snapshot().entrySet()) {
+            if (!options.contains(entry.getValue().mOption)) {
+                mSnapshots.remove(entry.getKey());
+            }
+        }
+    }
+
+    private static class Snapshot {
+        private final GridOption mOption;
+        private final int mColor;
+        private final Bitmap mBitmap;
+
+        Snapshot(GridOption option, int width, int height, @ColorInt int color) {
+            mOption = option;
+            mColor = color;
+            mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            // The grid is drawn in a square, centered in the workspace.
+            int size = Math.min(width, height);
+            GridTileDrawable grid =
+                    new GridTileDrawable(option.cols, option.rows, option.getIconShapePath());
+            grid.setColorFilter(new PorterDuffColorFilter(color, PorterDuff.Mode.SRC_IN));
+            grid.setBounds(0, 0, size, size);
+            Canvas canvas = new Canvas(mBitmap);
+            canvas.translate((width - size) / 2f, (height - size) / 2f);
+            grid.draw(canvas);
+        }
+
+        boolean matches(GridOption option, int width, int height, @ColorInt int color) {
+            return mOption.equals(option)
+                    && mColor == color
+                    && mBitmap.getWidth() == width
+                    && mBitmap.getHeight() == height;
+        }
+    }
+}
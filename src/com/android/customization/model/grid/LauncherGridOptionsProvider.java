@@ -21,11 +21,13 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.database.ContentObserver;
 import android.database.Cursor;
+import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.view.SurfaceView;
 
+import androidx.annotation.ColorInt;
 import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
@@ -38,6 +40,7 @@ import com.android.wallpaper.util.PreviewUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
 
 /**
  * Abstracts the logic to retrieve available grid options from the current Launcher.
@@ -59,12 +62,18 @@ public class LauncherGridOptionsProvider {
     private final Context mContext;
     private final PreviewUtils mPreviewUtils;
     private final boolean mIsGridApplyButtonEnabled;
-    private List<GridOption> mOptions;
+    private volatile List<GridOption> mOptions;
+    // Set whenever the launcher may have changed its grids without us being told about it, that is
+    // when it notifies a change or while nobody observes its changes.
+    private volatile boolean mOptionsStale = true;
     private OptionChangeLiveData mLiveData;
+    private final GridPreviewSnapshotCache mPreviewSnapshots;
+    @Nullable private volatile Runnable mOnOptionsInvalidatedListener;
 
     public LauncherGridOptionsProvider(Context context, String authorityMetadataKey) {
         mPreviewUtils = new PreviewUtils(context, authorityMetadataKey);
         mContext = context;
+        mPreviewSnapshots = new GridPreviewSnapshotCache(Executors.newSingleThreadExecutor());
         mIsGridApplyButtonEnabled = BaseFlags.get().isGridApplyButtonEnabled(context);
     }
 
@@ -74,7 +83,7 @@ public class LauncherGridOptionsProvider {
 
     /**
      * Retrieve the available grids.
-     * @param reload whether to reload grid options if they're cached.
+     * @param reload whether to reload grid options even if the cached ones are still valid.
      */
     @WorkerThread
     @Nullable
@@ -82,29 +91,88 @@ public class LauncherGridOptionsProvider {
         if (!areGridsAvailable()) {
             return null;
         }
-        if (mOptions != null && !reload) {
-            return mOptions;
+        List<GridOption> cachedOptions = getCachedOptions();
+        if (cachedOptions != null && !reload) {
+            return cachedOptions;
         }
+        // Cleared before querying, so that a change notified while we query invalidates the result.
+        mOptionsStale = false;
         ContentResolver resolver = mContext.getContentResolver();
         String iconPath = mContext.getResources().getString(Resources.getSystem().getIdentifier(
                 ResourceConstants.CONFIG_ICON_MASK, "string", ResourceConstants.ANDROID_PACKAGE));
+        List<GridOption> options;
         try (Cursor c = resolver.query(mPreviewUtils.getUri(LIST_OPTIONS), null, null, null,
                 null)) {
-            mOptions = new ArrayList<>();
+            int nameIndex = c.getColumnIndex(COL_NAME);
+            int rowsIndex = c.getColumnIndex(COL_ROWS);
+            int colsIndex = c.getColumnIndex(COL_COLS);
+            int previewCountIndex = c.getColumnIndex(COL_PREVIEW_COUNT);
+            int isDefaultIndex = c.getColumnIndex(COL_IS_DEFAULT);
+            Uri previewUri = mPreviewUtils.getUri(PREVIEW);
+            options = new ArrayList<>(c.getCount());
             while(c.moveToNext()) {
-                String name = c.getString(c.getColumnIndex(COL_NAME));
-                int rows = c.getInt(c.getColumnIndex(COL_ROWS));
-                int cols = c.getInt(c.getColumnIndex(COL_COLS));
-                int previewCount = c.getInt(c.getColumnIndex(COL_PREVIEW_COUNT));
-                boolean isSet = Boolean.parseBoolean(c.getString(c.getColumnIndex(COL_IS_DEFAULT)));
+                String name = c.getString(nameIndex);
+                int rows = c.getInt(rowsIndex);
+                int cols = c.getInt(colsIndex);
+                int previewCount = c.getInt(previewCountIndex);
+                boolean isSet = Boolean.parseBoolean(c.getString(isDefaultIndex));
                 String title = mContext.getString(R.string.grid_title_pattern, cols, rows);
-                mOptions.add(new GridOption(title, name, isSet, rows, cols,
-                        mPreviewUtils.getUri(PREVIEW), previewCount, iconPath));
+                options.add(new GridOption(title, name, isSet, rows, cols,
+                        previewUri, previewCount, iconPath));
             }
         } catch (Exception e) {
-            mOptions = null;
+            options = null;
+            mOptionsStale = true;
+        }
+        if (options != null) {
+            mPreviewSnapshots.retainAll(options);
+        }
+        mOptions = options;
+        return options;
+    }
+
+    /**
+     * Returns the grids loaded by the last {@link #fetch(boolean)}, or null if they haven't been
+     * loaded yet or may have changed since.
+     */
+    @Nullable
+    List<GridOption> getCachedOptions() {
+        return mOptionsStale ? null : mOptions;
+    }
+
+    /**
+     * Sets the listener called whenever the options returned by {@link #getCachedOptions()} are
+     * invalidated, from whichever thread invalidates them.
+     */
+    void setOnOptionsInvalidatedListener(@Nullable Runnable listener) {
+        mOnOptionsInvalidatedListener = listener;
+    }
+
+    private void invalidateOptions() {
+        mOptionsStale = true;
+        Runnable listener = mOnOptionsInvalidatedListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Returns the snapshot of the workspace preview with the given grid, of the given size and
+     * color.
+     */
+    Bitmap getPreviewSnapshot(GridOption option, int width, int height, @ColorInt int color) {
+        return mPreviewSnapshots.get(option, width, height, color);
+    }
+
+    /**
+     * Draws the snapshots of the grids next to the given one in the background, of the given size
+     * and color.
+     */
+    void prefetchPreviewSnapshots(GridOption option, int width, int height, @ColorInt int color) {
+        List<GridOption> options = getCachedOptions();
+        if (options != null) {
+            mPreviewSnapshots.prefetchAround(options, option, width, height, color);
         }
-        return mOptions;
     }
 
     /**
@@ -128,8 +196,10 @@ public class LauncherGridOptionsProvider {
         ContentValues values = new ContentValues();
         values.put("name", name);
         values.put("enable_apply_button", mIsGridApplyButtonEnabled);
-        return mContext.getContentResolver().update(mPreviewUtils.getUri(DEFAULT_GRID), values,
-                null, null);
+        int updated = mContext.getContentResolver().update(mPreviewUtils.getUri(DEFAULT_GRID),
+                values, null, null);
+        invalidateOptions();
+        return updated;
     }
 
     /**
@@ -140,7 +210,8 @@ public class LauncherGridOptionsProvider {
             @Nullable Handler handler) {
         if (mLiveData == null) {
             mLiveData = new OptionChangeLiveData(
-                    mContext, mPreviewUtils.getUri(DEFAULT_GRID), handler);
+                    mContext, mPreviewUtils.getUri(DEFAULT_GRID), handler,
+                    this::invalidateOptions);
         }
 
         return mLiveData;
@@ -151,16 +222,21 @@ public class LauncherGridOptionsProvider {
         private final ContentResolver mContentResolver;
         private final Uri mUri;
         private final ContentObserver mContentObserver;
+        private final Runnable mOnOptionsChanged;
 
         OptionChangeLiveData(
                 Context context,
                 Uri uri,
-                @Nullable Handler handler) {
+                @Nullable Handler handler,
+                Runnable onOptionsChanged) {
             mContentResolver = context.getContentResolver();
             mUri = uri;
+            mOnOptionsChanged = onOptionsChanged;
             mContentObserver = new ContentObserver(handler) {
                 @Override
                 public void onChange(boolean selfChange) {
+                    // The cached options are outdated either way, even if we don't notify.
+                    mOnOptionsChanged.run();
                     // If grid apply button is enabled, user has previewed the grid before applying
                     // the grid change. Thus there is no need to preview again (which will cause a
                     // blank preview as launcher's is loader thread is busy reloading workspace)
@@ -185,6 +261,8 @@ public class LauncherGridOptionsProvider {
         @Override
         protected void onInactive() {
             mContentResolver.unregisterContentObserver(mContentObserver);
+            // Changes won't be observed anymore, so what was cached can't be trusted.
+            mOnOptionsChanged.run();
         }
     }
 }
@@ -16,6 +16,7 @@
 package com.android.customization.model.iconpack;
 
 import static com.android.customization.model.ResourceConstants.ANDROID_PACKAGE;
+import static com.android.customization.model.ResourceConstants.ICONS_FOR_PREVIEW;
 import static com.android.customization.model.ResourceConstants.SETTINGS_PACKAGE;
 import static com.android.customization.model.ResourceConstants.SYSUI_PACKAGE;
 import static com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_ICON_ANDROID;
@@ -23,26 +24,26 @@ import static com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY
 import static com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_ICON_SYSUI;
 
 import android.content.Context;
-import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
 import android.graphics.PorterDuff.Mode;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewGroup.LayoutParams;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.annotation.Nullable;
+
+import com.android.customization.widget.ThumbnailTileCache;
 import com.android.wallpaper.R;
-import com.android.wallpaper.util.ResourceUtils;
 
 import com.android.customization.model.CustomizationManager;
 import com.android.customization.model.CustomizationOption;
 import com.android.customization.model.ResourceConstants;
 import com.android.customization.model.theme.OverlayManagerCompat;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -54,7 +55,9 @@ public class IconPackOption implements CustomizationOption<IconPackOption> {
             R.id.preview_icon_4, R.id.preview_icon_5
     };
 
-    private List<Drawable> mIcons = new ArrayList<>();
+    private IconPackPreviewCache mPreviewCache;
+    // Package the preview icons are loaded from, on demand, through mPreviewCache
+    private String mIconPackage;
     private String mTitle;
     private boolean mIsDefault;
 
@@ -72,20 +75,24 @@ public class IconPackOption implements CustomizationOption<IconPackOption> {
 
     @Override
     public void bindThumbnailTile(View view) {
-        Resources res = view.getContext().getResources();
-        Drawable icon = mIcons.get(THUMBNAIL_ICON_POSITION)
-                .getConstantState().newDrawable().mutate();
-        int colorFilter = ResourceUtils.getColorAttr(view.getContext(),
+        if (mIconPackage == null) {
+            return;
+        }
+        ThumbnailTileCache tileCache = ThumbnailTileCache.getInstance(view.getContext());
+        int colorFilter = tileCache.getColorAttr(view.getContext(),
                 android.R.attr.textColorPrimary);
         int resId = R.id.icon_section_tile;
         if (view.findViewById(R.id.option_icon) != null) {
             resId = R.id.option_icon;
-            colorFilter = ResourceUtils.getColorAttr(view.getContext(),
+            colorFilter = tileCache.getColorAttr(view.getContext(),
                 view.isActivated() ? android.R.attr.textColorPrimary :
                 android.R.attr.textColorTertiary);
         }
-        icon.setColorFilter(colorFilter, Mode.SRC_ATOP);
-        ((ImageView) view.findViewById(resId)).setImageDrawable(icon);
+        // The preview cache already holds the icon rasterized, it's tinted as it's drawn rather
+        // than rasterized again.
+        ImageView iconView = view.findViewById(resId);
+        iconView.setImageDrawable(getIcon(THUMBNAIL_ICON_POSITION, iconView));
+        iconView.setColorFilter(colorFilter, Mode.SRC_ATOP);
         view.setContentDescription(mTitle);
     }
 
@@ -122,9 +129,9 @@ public class IconPackOption implements CustomizationOption<IconPackOption> {
             LayoutInflater.from(container.getContext()).inflate(
                     R.layout.preview_card_icon_content, cardBody, true);
         }
-        for (int i = 0; i < mIconIds.length && i < mIcons.size(); i++) {
-            ((ImageView) container.findViewById(mIconIds[i])).setImageDrawable(
-                    mIcons.get(i));
+        for (int i = 0; i < mIconIds.length && i < ICONS_FOR_PREVIEW.length; i++) {
+            ImageView iconView = container.findViewById(mIconIds[i]);
+            iconView.setImageDrawable(getIcon(i, iconView));
         }
     }
 
@@ -141,8 +148,31 @@ public class IconPackOption implements CustomizationOption<IconPackOption> {
        }
     }
 
-    public void addIcon(Drawable previewIcon) {
-        mIcons.add(previewIcon);
+    /**
+     * Sets the package whose {@link ResourceConstants#ICONS_FOR_PREVIEW} are shown for this option.
+     * Icons aren't loaded until they're bound.
+     */
+    void setIconPackage(IconPackPreviewCache previewCache, String iconPackage) {
+        mPreviewCache = previewCache;
+        mIconPackage = iconPackage;
+    }
+
+    /**
+     * Returns the icon at {@code position}, rasterized at the size {@code iconView} draws it, as
+     * set by its layout.
+     */
+    @Nullable
+    private Drawable getIcon(int position, ImageView iconView) {
+        if (mIconPackage == null) {
+            return null;
+        }
+        LayoutParams params = iconView.getLayoutParams();
+        int size = params != null ? Math.max(params.width, params.height) : 0;
+        if (size <= 0) {
+            size = iconView.getResources().getDimensionPixelSize(
+                    R.dimen.component_icon_thumb_size);
+        }
+        return mPreviewCache.getIcon(mIconPackage, ICONS_FOR_PREVIEW[position], size);
     }
 
     public void addOverlayPackage(String category, String overlayPackage) {
@@ -16,7 +16,6 @@
 package com.android.customization.model.iconpack;
 
 import static com.android.customization.model.ResourceConstants.ANDROID_PACKAGE;
-import static com.android.customization.model.ResourceConstants.ICONS_FOR_PREVIEW;
 import static com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_ICON_ANDROID;
 import static com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_ICON_SETTINGS;
 import static com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_ICON_SYSUI;
@@ -24,89 +23,136 @@ import static com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
-import android.content.res.Resources;
-import android.content.res.Resources.NotFoundException;
-import android.graphics.drawable.Drawable;
 import android.os.UserHandle;
 import android.util.Log;
 
+import com.android.customization.model.OverlayPackageMonitor;
 import com.android.customization.model.ResourceConstants;
 import com.android.customization.model.theme.OverlayManagerCompat;
 import com.android.wallpaper.R;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class IconPackOptionProvider {
 
     private static final String TAG = "IconPackOptionProvider";
+    // The overlay categories of an icon pack. Its preview icons come from the first one.
+    private static final String[] ICON_CATEGORIES = {OVERLAY_CATEGORY_ICON_ANDROID,
+            OVERLAY_CATEGORY_ICON_SYSUI, OVERLAY_CATEGORY_ICON_SETTINGS};
 
     private Context mContext;
     private PackageManager mPm;
-    private final List<String> mOverlayPackages;
+    private final OverlayManagerCompat mOverlayManager;
+    private final IconPackPreviewCache mPreviewCache;
+    // Overlay packages of each icon category, only queried again for packages that changed.
+    private final Map<String, List<String>> mOverlayPackagesByCategory = new HashMap<>();
     private final List<IconPackOption> mOptions = new ArrayList<>();
-    private final List<String> mSysUiIconsOverlayPackages = new ArrayList<>();
-    private final List<String> mSettingsIconsOverlayPackages = new ArrayList<>();
+    // Options already built, keyed by the package name prefix shared by their overlays.
+    private final Map<String, IconPackOption> mOptionsByPrefix = new HashMap<>();
+    // Packages that changed since the overlay packages were loaded.
+    private final Set<String> mDirtyPackages = new HashSet<>();
+    // Labels of the overlay packages, only loaded again for packages that changed.
+    private final Map<String, String> mLabels = new HashMap<>();
+    private IconPackOption mDefaultOption;
 
     public IconPackOptionProvider(Context context, OverlayManagerCompat manager) {
         mContext = context;
         mPm = context.getPackageManager();
-        String[] targetPackages = ResourceConstants.getPackagesToOverlay(context);
-        mSysUiIconsOverlayPackages.addAll(manager.getOverlayPackagesForCategory(
-                OVERLAY_CATEGORY_ICON_SYSUI, UserHandle.myUserId(), targetPackages));
-        mSettingsIconsOverlayPackages.addAll(manager.getOverlayPackagesForCategory(
-                OVERLAY_CATEGORY_ICON_SETTINGS, UserHandle.myUserId(), targetPackages));
-        mOverlayPackages = new ArrayList<>();
-        mOverlayPackages.addAll(manager.getOverlayPackagesForCategory(OVERLAY_CATEGORY_ICON_ANDROID,
-                UserHandle.myUserId(), ResourceConstants.getPackagesToOverlay(mContext)));
+        mOverlayManager = manager;
+        mPreviewCache = IconPackPreviewCache.getInstance(context);
+        OverlayPackageMonitor.getInstance(context).addListener(this::onPackageChanged);
     }
 
-    public List<IconPackOption> getOptions() {
-        if (mOptions.isEmpty()) loadOptions();
+    public synchronized List<IconPackOption> getOptions() {
+        if (!mDirtyPackages.isEmpty() || mOptions.isEmpty()) loadOptions();
         return mOptions;
     }
 
-    private void loadOptions() {
-        addDefault();
+    private synchronized void onPackageChanged(String packageName) {
+        // Any package could be a newly installed icon overlay, so its overlay category is queried
+        // on the next fetch, and only the option it belongs to gets rebuilt.
+        mOverlayManager.invalidateOverlays();
+        mDirtyPackages.add(packageName);
+        mLabels.remove(packageName);
+        mPreviewCache.invalidatePackage(packageName);
+    }
 
-        Map<String, IconPackOption> optionsByPrefix = new HashMap<>();
-        for (String overlayPackage : mOverlayPackages) {
-            IconPackOption option = addOrUpdateOption(optionsByPrefix, overlayPackage,
-                    OVERLAY_CATEGORY_ICON_ANDROID);
-            try{
-                for (String iconName : ICONS_FOR_PREVIEW) {
-                    option.addIcon(loadIconPreviewDrawable(iconName, overlayPackage));
-                }
-            } catch (NotFoundException | NameNotFoundException e) {
-                Log.w(TAG, String.format("Couldn't load icon overlay details for %s, will skip it",
-                        overlayPackage), e);
+    private void loadOptions() {
+        if (mOverlayPackagesByCategory.isEmpty()) {
+            String[] targetPackages = ResourceConstants.getPackagesToOverlay(mContext);
+            for (String category : ICON_CATEGORIES) {
+                mOverlayPackagesByCategory.put(category, new ArrayList<>(
+                        mOverlayManager.getOverlayPackagesForCategory(
+                                category, UserHandle.myUserId(), targetPackages)));
+            }
+        } else {
+            for (String packageName : mDirtyPackages) {
+                updateOverlayPackage(packageName);
             }
         }
-
-        for (String overlayPackage : mSysUiIconsOverlayPackages) {
-            addOrUpdateOption(optionsByPrefix, overlayPackage, OVERLAY_CATEGORY_ICON_SYSUI);
-        }
-
-        for (String overlayPackage : mSettingsIconsOverlayPackages) {
-            addOrUpdateOption(optionsByPrefix, overlayPackage, OVERLAY_CATEGORY_ICON_SETTINGS);
+        mDirtyPackages.clear();
+
+        // Only build the options whose overlays changed, reusing the others.
+        Map<String, IconPackOption> builtOptionsByPrefix = new HashMap<>();
+        for (String category : ICON_CATEGORIES) {
+            for (String overlayPackage : mOverlayPackagesByCategory.get(category)) {
+                if (mOptionsByPrefix.containsKey(getPrefix(overlayPackage))) {
+                    continue;
+                }
+                IconPackOption option = addOrUpdateOption(builtOptionsByPrefix, overlayPackage,
+                        category);
+                if (option != null && OVERLAY_CATEGORY_ICON_ANDROID.equals(category)) {
+                    // Preview icons are decoded lazily when the option is bound.
+                    option.setIconPackage(mPreviewCache, overlayPackage);
+                }
+            }
         }
+        mOptionsByPrefix.putAll(builtOptionsByPrefix);
 
-        for (IconPackOption option : optionsByPrefix.values()) {
+        mOptions.clear();
+        addDefault();
+        for (IconPackOption option : mOptionsByPrefix.values()) {
             if (option.isValid(mContext)) {
                 mOptions.add(option);
             }
         }
     }
 
+    /**
+     * Moves the given package to the overlay list of its current category, if it's still an icon
+     * overlay, and drops the option it belonged to so it gets rebuilt.
+     */
+    private void updateOverlayPackage(String packageName) {
+        boolean wasOverlay = false;
+        for (List<String> overlayPackages : mOverlayPackagesByCategory.values()) {
+            wasOverlay |= overlayPackages.remove(packageName);
+        }
+        String category = mOverlayManager.getOverlayCategory(packageName, UserHandle.myUserId());
+        boolean isOverlay = category != null && mOverlayPackagesByCategory.containsKey(category);
+        if (isOverlay) {
+            mOverlayPackagesByCategory.get(category).add(packageName);
+        }
+        if (wasOverlay || isOverlay) {
+            mOptionsByPrefix.remove(getPrefix(packageName));
+        }
+    }
+
+    private static String getPrefix(String overlayPackage) {
+        return overlayPackage.substring(0, overlayPackage.lastIndexOf("."));
+    }
+
     private IconPackOption addOrUpdateOption(Map<String, IconPackOption> optionsByPrefix,
             String overlayPackage, String category) {
-        String prefix = overlayPackage.substring(0, overlayPackage.lastIndexOf("."));
+        String prefix = getPrefix(overlayPackage);
         IconPackOption option = null;
         try {
             if (!optionsByPrefix.containsKey(prefix)) {
-                option = new IconPackOption(mPm.getApplicationInfo(overlayPackage, 0).loadLabel(mPm).toString());
+                option = new IconPackOption(getLabel(overlayPackage));
                 optionsByPrefix.put(prefix, option);
             } else {
                 option = optionsByPrefix.get(prefix);
@@ -118,28 +164,25 @@ public class IconPackOptionProvider {
         return option;
     }
 
-    private Drawable loadIconPreviewDrawable(String drawableName, String packageName)
-            throws NameNotFoundException, NotFoundException {
-        final Resources resources = ANDROID_PACKAGE.equals(packageName)
-                ? Resources.getSystem()
-                : mPm.getResourcesForApplication(packageName);
-        return resources.getDrawable(
-                resources.getIdentifier(drawableName, "drawable", packageName), null);
+    private String getLabel(String overlayPackage) throws NameNotFoundException {
+        String label = mLabels.get(overlayPackage);
+        if (label == null) {
+            label = mPm.getApplicationInfo(overlayPackage, 0).loadLabel(mPm).toString();
+            mLabels.put(overlayPackage, label);
+        }
+        return label;
     }
 
     private void addDefault() {
-        IconPackOption option = new IconPackOption(mContext.getString(R.string.default_theme_title), true);
-        try {
-            for (String iconName : ICONS_FOR_PREVIEW) {
-                option.addIcon(loadIconPreviewDrawable(iconName, ANDROID_PACKAGE));
-            }
-        } catch (NameNotFoundException | NotFoundException e) {
-            Log.w(TAG, "Didn't find SystemUi package icons, will skip option", e);
+        if (mDefaultOption == null) {
+            mDefaultOption = new IconPackOption(
+                    mContext.getString(R.string.default_theme_title), true);
+            mDefaultOption.setIconPackage(mPreviewCache, ANDROID_PACKAGE);
+            mDefaultOption.addOverlayPackage(OVERLAY_CATEGORY_ICON_ANDROID, null);
+            mDefaultOption.addOverlayPackage(OVERLAY_CATEGORY_ICON_SYSUI, null);
+            mDefaultOption.addOverlayPackage(OVERLAY_CATEGORY_ICON_SETTINGS, null);
         }
-        option.addOverlayPackage(OVERLAY_CATEGORY_ICON_ANDROID, null);
-        option.addOverlayPackage(OVERLAY_CATEGORY_ICON_SYSUI, null);
-        option.addOverlayPackage(OVERLAY_CATEGORY_ICON_SETTINGS, null);
-        mOptions.add(option);
+        mOptions.add(mDefaultOption);
     }
 
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.model.iconpack;
+
+import static com.android.customization.model.ResourceConstants.ANDROID_PACKAGE;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.NameNotFoundException;
+import android.content.res.Resources;
+import android.content.res.Resources.NotFoundException;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.Px;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of icon pack preview icons. Icons are only loaded from the overlay package
+ * the first time they're bound, rasterized at the size they're drawn at, so that they stay sharp
+ * on the larger preview card, and kept in an LRU cache bounded by the bitmaps' byte size so that
+ * every {@link IconPackOption} shares the same budget.
+ */
+class IconPackPreviewCache {
+
+    private static final String TAG = "IconPackPreviewCache";
+    // Fraction of the heap that preview bitmaps are allowed to use.
+    private static final int HEAP_FRACTION = 32;
+
+    private static IconPackPreviewCache sInstance;
+
+    private final Context mContext;
+    private final PackageManager mPm;
+    private final LruCache<String, Bitmap> mBitmaps;
+    // Loading the Resources of a package is the expensive part, so keep them around.
+    private final Map<String, Resources> mResourcesByPackage = new HashMap<>();
+
+    static synchronized IconPackPreviewCache getInstance(Context context) {
+        if (sInstance == null) {
+            Context applicationContext = context.getApplicationContext();
+            sInstance = new IconPackPreviewCache(applicationContext,
+                    (int) (Runtime.getRuntime().maxMemory() / HEAP_FRACTION));
+        }
+        return sInstance;
+    }
+
+    IconPackPreviewCache(Context context, int maxBytes) {
+        mContext = context;
+        mPm = context.getPackageManager();
+        mBitmaps = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the preview icon {@code iconName} from {@code packageName}, {@code size} pixels
+     * wide and high, loading and rasterizing it if it isn't cached at that size yet, or null if
+     * the package doesn't provide it.
+     */
+    @Nullable
+    Drawable getIcon(String packageName, String iconName, @Px int size) {
+        String key = packageName + "/" + iconName + "/" + size;
+        Bitmap bitmap = mBitmaps.get(key);
+        if (bitmap == null) {
+            bitmap = loadBitmap(packageName, iconName, size);
+            if (bitmap == null) {
+                return null;
+            }
+            mBitmaps.put(key, bitmap);
+        }
+        return new BitmapDrawable(mContext.getResources(), bitmap);
+    }
+
+    /**
+     * Drops everything cached for the given package, so its icons are loaded again from the
+     * updated package the next time they're needed.
+     */
+    void invalidatePackage(String packageName) {
+        synchronized (this) {
+            mResourcesByPackage.remove(packageName);
+        }
+        String keyPrefix = packageName + "/";
+        for (String key : mBitmaps.snapshot().keySet()) {
+            if (key.startsWith(keyPrefix)) {
+                mBitmaps.remove(key);
+            }
+        }
+    }
+
+    @Nullable
+    private Bitmap loadBitmap(String packageName, String iconName, @Px int size) {
+        try {
+            Resources resources = getResources(packageName);
+            Drawable drawable = resources.getDrawable(
+                    resources.getIdentifier(iconName, "drawable", packageName), null);
+            Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            drawable.setBounds(0, 0, size, size);
+            drawable.draw(new Canvas(bitmap));
+            return bitmap;
+        } catch (NotFoundException | NameNotFoundException e) {
+            Log.w(TAG, String.format("Couldn't load preview icon %s from %s", iconName,
+                    packageName), e);
+            return null;
+        }
+    }
+
+    private synchronized Resources getResources(String packageName)
+            throws NameNotFoundException {
+        Resources resources = mResourcesByPackage.get(packageName);
+        if (resources == null) {
+            resources = ANDROID_PACKAGE.equals(packageName)
+                    ? Resources.getSystem()
+                    : mPm.getResourcesForApplication(packageName);
+            mResourcesByPackage.put(packageName, resources);
+        }
+        return resources;
+    }
+}
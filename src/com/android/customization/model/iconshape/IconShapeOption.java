@@ -19,8 +19,10 @@ import static com.android.customization.model.ResourceConstants.ANDROID_PACKAGE;
 import static com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_SHAPE;
 
 import androidx.annotation.Dimension;
+import android.content.Context;
 import android.content.res.Resources;
-import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Color;
 import android.graphics.Path;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.LayerDrawable;
@@ -34,8 +36,8 @@ import android.widget.ImageView;
 import androidx.core.graphics.ColorUtils;
 
 import com.android.customization.model.theme.ShapeAppIcon;
+import com.android.customization.widget.ThumbnailTileCache;
 import com.android.wallpaper.R;
-import com.android.wallpaper.util.ResourceUtils;
 
 import com.android.customization.model.CustomizationManager;
 import com.android.customization.model.CustomizationOption;
@@ -74,32 +76,40 @@ public class IconShapeOption implements CustomizationOption<IconShapeOption> {
 
     @Override
     public void bindThumbnailTile(View view) {
-        Resources res = view.getContext().getResources();
+        Context context = view.getContext();
+        Resources res = context.getResources();
         int resId = R.id.icon_section_tile;
         if (view.findViewById(R.id.shape_thumbnail) != null) {
             resId = R.id.shape_thumbnail;
         }
 
-        Resources.Theme theme = view.getContext().getTheme();
+        ThumbnailTileCache tileCache = ThumbnailTileCache.getInstance(context);
+        int primaryColor = tileCache.getColorAttr(context, android.R.attr.colorPrimary);
+        int foregroundColor = tileCache.getColorAttr(context, android.R.attr.textColorPrimary);
+        int shapeColor = ColorUtils.blendARGB(primaryColor, foregroundColor, .05f);
         int borderWidth = 2 * res.getDimensionPixelSize(R.dimen.option_border_width);
 
-        Drawable background = mShape.getDrawable(0);
-        background.setTintList(res.getColorStateList(R.color.option_border_color, theme));
-
-        ShapeDrawable foreground = (ShapeDrawable) mShape.getDrawable(1);
-
-        foreground.setIntrinsicHeight(background.getIntrinsicHeight() - borderWidth);
-        foreground.setIntrinsicWidth(background.getIntrinsicWidth() - borderWidth);
-        TypedArray ta = view.getContext().obtainStyledAttributes(
-                new int[]{android.R.attr.colorPrimary});
-        int primaryColor = ta.getColor(0, 0);
-        ta.recycle();
-        int foregroundColor =
-                ResourceUtils.getColorAttr(view.getContext(), android.R.attr.textColorPrimary);
-
-        foreground.setTint(ColorUtils.blendARGB(primaryColor, foregroundColor, .05f));
-
-        ((ImageView) view.findViewById(resId)).setImageDrawable(mShape);
+        // The controller binds the tile again whenever the option is selected or unselected, so
+        // the border's color for the view's current state is the one to draw.
+        int borderColor = res.getColorStateList(R.color.option_border_color, context.getTheme())
+                .getColorForState(view.getDrawableState(), Color.TRANSPARENT);
+
+        // The tile only depends on the shape, its size and colors, so it's only drawn once, border
+        // and shape together, and shown as is on every later bind.
+        String key = "shape/" + mOverlayPackage + "/" + mShape.getIntrinsicWidth() + "/"
+                + borderWidth + "/" + borderColor + "/" + shapeColor;
+        Bitmap tile = tileCache.getTile(key, () -> {
+            Drawable background = mShape.getDrawable(0);
+            background.setTint(borderColor);
+
+            ShapeDrawable foreground = (ShapeDrawable) mShape.getDrawable(1);
+            foreground.setIntrinsicHeight(background.getIntrinsicHeight() - borderWidth);
+            foreground.setIntrinsicWidth(background.getIntrinsicWidth() - borderWidth);
+            foreground.setTint(shapeColor);
+            return mShape;
+        });
+
+        ((ImageView) view.findViewById(resId)).setImageBitmap(tile);
         view.setContentDescription(mTitle);
     }
 
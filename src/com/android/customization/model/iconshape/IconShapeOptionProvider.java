@@ -30,62 +30,115 @@ import android.content.res.Resources.NotFoundException;
 import android.graphics.Path;
 import android.graphics.drawable.AdaptiveIconDrawable;
 import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Drawable.ConstantState;
 import android.graphics.drawable.ShapeDrawable;
 import android.graphics.drawable.shapes.PathShape;
 import android.os.UserHandle;
 import android.text.TextUtils;
 import android.util.Log;
-import android.util.PathParser;
 
 import androidx.annotation.Dimension;
 
+import com.android.customization.model.OverlayPackageMonitor;
 import com.android.customization.model.ResourceConstants;
 import com.android.customization.model.theme.OverlayManagerCompat;
 import com.android.customization.model.theme.ShapeAppIcon;
 import com.android.customization.widget.DynamicAdaptiveIconDrawable;
+import com.android.customization.widget.PathDataCache;
+import com.android.customization.widget.ThumbnailTileCache;
 import com.android.wallpaper.R;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class IconShapeOptionProvider {
 
     private static final String TAG = "IconShapeOptionProvider";
 
     private Context mContext;
-    private final List<String> mOverlayPackages;
+    private final OverlayManagerCompat mOverlayManager;
+    private final List<String> mOverlayPackages = new ArrayList<>();
     private final List<IconShapeOption> mOptions = new ArrayList<>();
+    // Options already built for each overlay package, keyed by package name.
+    private final Map<String, IconShapeOption> mOptionsByPackage = new HashMap<>();
+    // Overlays that changed since their option was built.
+    private final Set<String> mDirtyPackages = new HashSet<>();
     private final String[] mShapePreviewIconPackages;
+    private List<AdaptiveIconDrawable> mPreviewAppIcons;
+    private IconShapeOption mDefaultOption;
+    private boolean mOverlayPackagesStale = true;
     private int mThumbSize;
 
     public IconShapeOptionProvider(Context context, OverlayManagerCompat manager) {
         mContext = context;
-        mOverlayPackages = new ArrayList<>();
-        mOverlayPackages.addAll(manager.getOverlayPackagesForCategory(OVERLAY_CATEGORY_SHAPE,
-                UserHandle.myUserId(), ResourceConstants.getPackagesToOverlay(mContext)));
+        mOverlayManager = manager;
 
         mShapePreviewIconPackages = context.getResources().getStringArray(
                 R.array.icon_shape_preview_packages);
         mThumbSize = mContext.getResources().getDimensionPixelSize(
                 R.dimen.component_shape_thumb_size);
+        OverlayPackageMonitor.getInstance(context).addListener(this::onPackageChanged);
     }
 
-    public List<IconShapeOption> getOptions() {
-        if (mOptions.isEmpty()) loadOptions();
+    public synchronized List<IconShapeOption> getOptions() {
+        if (mOverlayPackagesStale || !mDirtyPackages.isEmpty() || mOptions.isEmpty()) {
+            loadOptions();
+        }
         return mOptions;
     }
 
+    private synchronized void onPackageChanged(String packageName) {
+        if (Arrays.asList(mShapePreviewIconPackages).contains(packageName)) {
+            // Every option shows this app's icon, so all of them need to be rebuilt.
+            mPreviewAppIcons = null;
+            mDefaultOption = null;
+            mOptionsByPackage.clear();
+        }
+        // Any package could be a newly installed shape overlay, so the overlay list is queried
+        // again on the next fetch, but only this package's option gets rebuilt.
+        mOverlayManager.invalidateOverlays();
+        mOverlayPackagesStale = true;
+        if (mOptionsByPackage.containsKey(packageName)) {
+            mDirtyPackages.add(packageName);
+            ThumbnailTileCache.getInstance(mContext).invalidate("shape/" + packageName + "/");
+        }
+    }
+
     private void loadOptions() {
+        if (mOverlayPackagesStale) {
+            mOverlayPackages.clear();
+            mOverlayPackages.addAll(mOverlayManager.getOverlayPackagesForCategory(
+                    OVERLAY_CATEGORY_SHAPE, UserHandle.myUserId(),
+                    ResourceConstants.getPackagesToOverlay(mContext)));
+            mOverlayPackagesStale = false;
+        }
+        mOptions.clear();
         addDefault();
+        // Forget the overlays that have been uninstalled, and the ones that need a rebuild.
+        mOptionsByPackage.keySet().retainAll(mOverlayPackages);
+        mOptionsByPackage.keySet().removeAll(mDirtyPackages);
+        mDirtyPackages.clear();
         for (String overlayPackage : mOverlayPackages) {
+            IconShapeOption option = mOptionsByPackage.get(overlayPackage);
+            if (option != null) {
+                mOptions.add(option);
+                continue;
+            }
             try {
                 Path path = loadPath(mContext.getPackageManager()
                         .getResourcesForApplication(overlayPackage), overlayPackage);
                 PackageManager pm = mContext.getPackageManager();
                 String label = pm.getApplicationInfo(overlayPackage, 0).loadLabel(pm).toString();
-                mOptions.add(new IconShapeOption(overlayPackage, label, path,
+                option = new IconShapeOption(overlayPackage, label, path,
                         loadCornerRadius(overlayPackage), createShapeDrawable(path),
-                        getShapedAppIcons(path)));
+                        getShapedAppIcons(path));
+                mOptionsByPackage.put(overlayPackage, option);
+                mOptions.add(option);
             } catch (NameNotFoundException | NotFoundException e) {
                 Log.w(TAG, String.format("Couldn't load shape overlay %s, will skip it",
                         overlayPackage), e);
@@ -94,13 +147,17 @@ public class IconShapeOptionProvider {
     }
 
     private void addDefault() {
-        Resources system = Resources.getSystem();
-        Path path = loadPath(system, ANDROID_PACKAGE);
-        mOptions.add(new IconShapeOption(null, mContext.getString(R.string.default_theme_title), path,
-                system.getDimensionPixelOffset(
-                        system.getIdentifier(CONFIG_CORNERRADIUS,
-                                "dimen", ResourceConstants.ANDROID_PACKAGE)),
-                createShapeDrawable(path), getShapedAppIcons(path)));
+        if (mDefaultOption == null) {
+            Resources system = Resources.getSystem();
+            Path path = loadPath(system, ANDROID_PACKAGE);
+            mDefaultOption = new IconShapeOption(null,
+                    mContext.getString(R.string.default_theme_title), path,
+                    system.getDimensionPixelOffset(
+                            system.getIdentifier(CONFIG_CORNERRADIUS,
+                                    "dimen", ResourceConstants.ANDROID_PACKAGE)),
+                    createShapeDrawable(path), getShapedAppIcons(path));
+        }
+        mOptions.add(mDefaultOption);
     }
 
     private ShapeDrawable createShapeDrawable(Path path) {
@@ -113,30 +170,48 @@ public class IconShapeOptionProvider {
 
     private List<ShapeAppIcon> getShapedAppIcons(Path path) {
         List<ShapeAppIcon> shapedAppIcons = new ArrayList<>();
+        for (AdaptiveIconDrawable appIcon : getPreviewAppIcons()) {
+            // Each shape gets its own layer drawables, but they share the loaded icon's state.
+            shapedAppIcons.add(new ShapeAppIcon(new DynamicAdaptiveIconDrawable(
+                    newLayerDrawable(appIcon.getBackground()),
+                    newLayerDrawable(appIcon.getForeground()), path)));
+        }
+        return shapedAppIcons;
+    }
+
+    /**
+     * Returns the adaptive icons of the shape preview apps, loading them the first time only, as
+     * they're the same for every shape option.
+     */
+    private List<AdaptiveIconDrawable> getPreviewAppIcons() {
+        if (mPreviewAppIcons != null) {
+            return mPreviewAppIcons;
+        }
+        mPreviewAppIcons = new ArrayList<>();
+        PackageManager pm = mContext.getPackageManager();
         for (String packageName : mShapePreviewIconPackages) {
-            Drawable icon = null;
-            CharSequence name = null;
             try {
-                Drawable appIcon = mContext.getPackageManager().getApplicationIcon(packageName);
+                Drawable appIcon = pm.getApplicationIcon(packageName);
                 if (appIcon instanceof AdaptiveIconDrawable) {
-                    AdaptiveIconDrawable adaptiveIcon = (AdaptiveIconDrawable) appIcon;
-                    icon = new DynamicAdaptiveIconDrawable(adaptiveIcon.getBackground(),
-                            adaptiveIcon.getForeground(), path);
-
-                    ApplicationInfo appInfo = mContext.getPackageManager()
-                            .getApplicationInfo(packageName, /* flag= */ 0);
-                    name = mContext.getPackageManager().getApplicationLabel(appInfo);
+                    ApplicationInfo appInfo = pm.getApplicationInfo(packageName, /* flag= */ 0);
+                    if (!TextUtils.isEmpty(pm.getApplicationLabel(appInfo))) {
+                        mPreviewAppIcons.add((AdaptiveIconDrawable) appIcon);
+                    }
                 }
             } catch (NameNotFoundException e) {
                 Log.d(TAG, "Couldn't find app " + packageName
                         + ", won't use it for icon shape preview");
-            } finally {
-                if (icon != null && !TextUtils.isEmpty(name)) {
-                    shapedAppIcons.add(new ShapeAppIcon(icon));
-                }
             }
         }
-        return shapedAppIcons;
+        return mPreviewAppIcons;
+    }
+
+    private static Drawable newLayerDrawable(Drawable layer) {
+        if (layer == null) {
+            return null;
+        }
+        ConstantState state = layer.getConstantState();
+        return state != null ? state.newDrawable() : layer;
     }
 
     private Path loadPath(Resources overlayRes, String packageName) {
@@ -144,7 +219,7 @@ public class IconShapeOptionProvider {
                 packageName));
 
         if (!TextUtils.isEmpty(shape)) {
-            return PathParser.createPathFromPathData(shape);
+            return PathDataCache.get(shape);
         }
         return null;
     }
@@ -21,10 +21,12 @@ import android.content.om.OverlayManager;
 import android.os.UserHandle;
 
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.customization.model.ResourceConstants;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -37,11 +39,18 @@ import java.util.Map;
 public class OverlayManagerCompat {
     private final OverlayManager mOverlayManager;
     private final String[] mTargetPackages;
+    // Overlays of each target package, per user, loaded once until invalidated.
     private Map<Integer, Map<String, List<OverlayInfo>>> mOverlayByUser;
 
     public OverlayManagerCompat(Context context) {
-        mOverlayManager = context.getSystemService(OverlayManager.class);
-        mTargetPackages = ResourceConstants.getPackagesToOverlay(context);
+        this(context.getSystemService(OverlayManager.class),
+                ResourceConstants.getPackagesToOverlay(context));
+    }
+
+    @VisibleForTesting
+    public OverlayManagerCompat(OverlayManager overlayManager, String[] targetPackages) {
+        mOverlayManager = overlayManager;
+        mTargetPackages = targetPackages;
     }
 
     public boolean isAvailable() {
@@ -95,7 +104,16 @@ public class OverlayManagerCompat {
         return overlays;
     }
 
-    public List<String> getOverlayPackagesForCategory(String category, int userId,
+    /**
+     * Drops the overlays loaded so far for every user, so that the next
+     * {@link #getOverlayPackagesForCategory} call queries them again. To be called whenever a
+     * package is installed, updated or removed, as it may be an overlay.
+     */
+    public synchronized void invalidateOverlays() {
+        mOverlayByUser = null;
+    }
+
+    public synchronized List<String> getOverlayPackagesForCategory(String category, int userId,
             String... targetPackages) {
         List<String> overlays = new ArrayList<>();
         ensureCategoryMapForUser(userId);
@@ -110,6 +128,20 @@ public class OverlayManagerCompat {
         return overlays;
     }
 
+    /**
+     * @return the category of the overlay provided by the given package for the given user Id, or
+     * {@code null} if that package isn't an installed overlay for one of the target packages.
+     */
+    @Nullable
+    public String getOverlayCategory(String packageName, int userId) {
+        OverlayInfo info = mOverlayManager.getOverlayInfo(packageName, UserHandle.of(userId));
+        if (info == null
+                || !Arrays.asList(mTargetPackages).contains(info.getTargetPackageName())) {
+            return null;
+        }
+        return info.getCategory();
+    }
+
     private void ensureCategoryMapForUser(int userId) {
         if (mOverlayByUser == null) {
             mOverlayByUser = new HashMap<>();
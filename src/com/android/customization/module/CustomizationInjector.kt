@@ -39,6 +39,9 @@ interface CustomizationInjector : Injector {
 
     fun getClockRegistry(context: Context): ClockRegistry?
 
+    /** Starts loading the clocks in the background, ahead of the first screen showing them. */
+    fun warmUpClockRegistry(context: Context)
+
     fun getClockPickerInteractor(context: Context): ClockPickerInteractor
 
     fun getColorPickerInteractor(
@@ -127,6 +127,9 @@ internal constructor(
 
     override fun getCustomizationSections(activity: ComponentActivity): CustomizationSections {
         val appContext = activity.applicationContext
+        // The grid section needs to ask the launcher whether it supports grids, start now so the
+        // answer is known by the time the sections are created.
+        GridOptionsManager.getInstance(appContext).prefetchAvailability()
         val clockViewFactory = getClockViewFactory(activity)
         val resources = activity.resources
         return customizationSections
@@ -324,15 +327,22 @@ internal constructor(
     }
 
     override fun getClockRegistry(context: Context): ClockRegistry {
-        return (clockRegistryProvider
-                ?: ClockRegistryProvider(
-                        context = context.applicationContext,
-                        coroutineScope = getApplicationCoroutineScope(),
-                        mainDispatcher = mainDispatcher,
-                        backgroundDispatcher = bgDispatcher,
-                    )
-                    .also { clockRegistryProvider = it })
-            .get()
+        return getClockRegistryProvider(context).get()
+    }
+
+    override fun warmUpClockRegistry(context: Context) {
+        getClockRegistryProvider(context).warmUp()
+    }
+
+    private fun getClockRegistryProvider(context: Context): ClockRegistryProvider {
+        return clockRegistryProvider
+            ?: ClockRegistryProvider(
+                    context = context.applicationContext,
+                    coroutineScope = getApplicationCoroutineScope(),
+                    mainDispatcher = mainDispatcher,
+                    backgroundDispatcher = bgDispatcher,
+                )
+                .also { clockRegistryProvider = it }
     }
 
     override fun getClockPickerInteractor(
@@ -347,6 +357,8 @@ internal constructor(
                             registry = getClockRegistry(appContext),
                             scope = getApplicationCoroutineScope(),
                             mainDispatcher = mainDispatcher,
+                            isPluginScanSettled =
+                                getClockRegistryProvider(appContext).isPluginScanSettled,
                         ),
                     snapshotRestorer = { getClockPickerSnapshotRestorer(appContext) },
                 )
@@ -378,6 +390,8 @@ internal constructor(
                         .getScreenSize(activity.windowManager.defaultDisplay),
                     WallpaperManager.getInstance(activity.applicationContext),
                     getClockRegistry(activity.applicationContext),
+                    bgDispatcher,
+                    ClockViewFactoryImpl.getMaxCachedClocks(activity.applicationContext),
                 )
                 .also {
                     clockViewFactory = it
@@ -510,8 +524,12 @@ internal constructor(
                     ),
                     userEventLogger,
                 ) { clockId ->
-                    clockId?.let { clockViewFactory.getController(clockId).config.isReactiveToTone }
-                        ?: false
+                    // The selected clock is shown in the clock settings, so it's created anyway.
+                    clockId?.let {
+                        (clockViewFactory.getConfig(clockId)
+                                ?: clockViewFactory.getController(clockId).config)
+                            .isReactiveToTone
+                    } ?: false
                 }
                 .also { clockSettingsViewModelFactory = it }
     }
@@ -534,8 +552,10 @@ internal constructor(
                     applicationScope = getApplicationCoroutineScope(),
                     repository =
                         GridRepositoryImpl(
-                            applicationScope = getApplicationCoroutineScope(),
-                            manager = GridOptionsManager.getInstance(context),
+                            manager =
+                                GridOptionsManager.getInstance(context).apply {
+                                    prefetchAvailability()
+                                },
                             backgroundDispatcher = bgDispatcher,
                             isGridApplyButtonEnabled =
                                 BaseFlags.get().isGridApplyButtonEnabled(appContext),
@@ -25,7 +25,8 @@ interface ThemesUserEventLogger : UserEventLogger {
 
     fun logThemeColorApplied(@ColorSource source: Int, style: Int, seedColor: Int)
 
-    fun logGridApplied(grid: GridOption)
+    /** Logs that [grid] was applied, which took [latencyMillis] until the launcher took it. */
+    fun logGridApplied(grid: GridOption, latencyMillis: Long)
 
     fun logClockApplied(clockId: String)
 
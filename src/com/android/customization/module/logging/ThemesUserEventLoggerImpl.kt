@@ -175,10 +175,11 @@ constructor(
             .log()
     }
 
-    override fun logGridApplied(grid: GridOption) {
+    override fun logGridApplied(grid: GridOption, latencyMillis: Long) {
         SysUiStatsLogger(GRID_APPLIED)
             .setAppSessionId(appSessionId.getId())
             .setLauncherGrid(grid.getLauncherGridInt())
+            .setTimeElapsed(latencyMillis)
             .log()
     }
 
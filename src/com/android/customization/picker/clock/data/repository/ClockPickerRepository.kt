@@ -20,6 +20,7 @@ import androidx.annotation.ColorInt
 import androidx.annotation.IntRange
 import com.android.customization.picker.clock.shared.ClockSize
 import com.android.customization.picker.clock.shared.model.ClockMetadataModel
+import com.android.customization.picker.clock.shared.model.ClockSnapshotModel
 import kotlinx.coroutines.flow.Flow
 
 /**
@@ -49,4 +50,17 @@ interface ClockPickerRepository {
     )
 
     suspend fun setClockSize(size: ClockSize)
+
+    /**
+     * Applies every option set in [option] at once. The clock id and color are written in a single
+     * settings change, so they're reported to observers together. Options that are null are left
+     * unchanged, the color ones only apply if [ClockSnapshotModel.colorToneProgress] is set.
+     */
+    suspend fun setClockOption(option: ClockSnapshotModel)
+
+    /**
+     * Returns the selected clock, its color and the clock size, read at once. The clock fields are
+     * null if the selected clock isn't available.
+     */
+    suspend fun getCurrentClockOption(): ClockSnapshotModel
 }
@@ -19,26 +19,33 @@ package com.android.customization.picker.clock.data.repository
 import android.provider.Settings
 import androidx.annotation.ColorInt
 import androidx.annotation.IntRange
+import androidx.annotation.VisibleForTesting
 import com.android.customization.picker.clock.shared.ClockSize
 import com.android.customization.picker.clock.shared.model.ClockMetadataModel
+import com.android.customization.picker.clock.shared.model.ClockSnapshotModel
 import com.android.systemui.plugins.clocks.ClockMetadata
 import com.android.systemui.shared.clocks.ClockRegistry
 import com.android.wallpaper.settings.data.repository.SecureSettingsRepository
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.SharedFlow
 import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.conflate
 import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.flow.flowOn
 import kotlinx.coroutines.flow.map
-import kotlinx.coroutines.flow.mapLatest
 import kotlinx.coroutines.flow.mapNotNull
 import kotlinx.coroutines.flow.shareIn
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 import org.json.JSONObject
 
 /** Implementation of [ClockPickerRepository], using [ClockRegistry]. */
@@ -46,20 +53,20 @@ class ClockPickerRepositoryImpl(
     private val secureSettingsRepository: SecureSettingsRepository,
     private val registry: ClockRegistry,
     scope: CoroutineScope,
-    mainDispatcher: CoroutineDispatcher,
+    private val mainDispatcher: CoroutineDispatcher,
+    /** Whether the registry has loaded the clock plugins installed when it started. */
+    isPluginScanSettled: Flow<Boolean>,
 ) : ClockPickerRepository {
 
-    @OptIn(ExperimentalCoroutinesApi::class)
-    override val allClocks: Flow<List<ClockMetadataModel>> =
+    /**
+     * The clocks available in the registry, shared by [allClocks] and [selectedClock]. Only built
+     * again when the available clocks change. The replayed list is dropped as soon as the last
+     * subscriber leaves, since the registry is no longer listened to and it could go stale.
+     */
+    private val clockList: SharedFlow<IndexedClockList> =
         callbackFlow {
                 fun send() {
-                    val activeClockId = registry.activeClockId
-                    val allClocks =
-                        registry.getClocks().map {
-                            it.toModel(isSelected = it.clockId == activeClockId)
-                        }
-
-                    trySend(allClocks)
+                    trySend(IndexedClockList(registry.getClocks()))
                 }
 
                 val listener =
@@ -73,47 +80,47 @@ class ClockPickerRepositoryImpl(
                 awaitClose { registry.unregisterClockChangeListener(listener) }
             }
             .flowOn(mainDispatcher)
-            .mapLatest { allClocks ->
-                // Loading list of clock plugins can cause many consecutive calls of
-                // onAvailableClocksChanged(). We only care about the final fully-initiated clock
-                // list. Delay to avoid unnecessary too many emits.
-                delay(100)
-                allClocks
+            .shareIn(
+                scope = scope,
+                started = SharingStarted.WhileSubscribed(replayExpirationMillis = 0),
+                replay = 1,
+            )
+
+    override val allClocks: Flow<List<ClockMetadataModel>> =
+        clockList
+            .map { clockList ->
+                val activeClockId = registry.activeClockId
+                clockList.clocks.map { it.toModel(isSelected = it.clockId == activeClockId) }
             }
+            .flowOn(mainDispatcher)
+            // Loading the clock plugins causes many consecutive calls of
+            // onAvailableClocksChanged(), only the list they end with is of interest.
+            .coalesceAfter(isPluginScanSettled, CLOCK_LIST_COALESCING_WINDOW_MILLIS)
 
     /** The currently-selected clock. This also emits the clock color information. */
     override val selectedClock: Flow<ClockMetadataModel> =
-        callbackFlow {
-                fun send() {
-                    val activeClockId = registry.activeClockId
-                    val metadata = registry.settings?.metadata
-                    val model =
-                        registry
-                            .getClocks()
-                            .find { clockMetadata -> clockMetadata.clockId == activeClockId }
-                            ?.toModel(
-                                isSelected = true,
-                                selectedColorId = metadata?.getSelectedColorId(),
-                                colorTone = metadata?.getColorTone()
-                                        ?: ClockMetadataModel.DEFAULT_COLOR_TONE_PROGRESS,
-                                seedColor = registry.seedColor
-                            )
-                    trySend(model)
-                }
-
-                val listener =
-                    object : ClockRegistry.ClockChangeListener {
-                        override fun onCurrentClockChanged() {
-                            send()
-                        }
-
-                        override fun onAvailableClocksChanged() {
-                            send()
+        combine(
+                clockList,
+                callbackFlow {
+                    val listener =
+                        object : ClockRegistry.ClockChangeListener {
+                            override fun onCurrentClockChanged() {
+                                trySend(Unit)
+                            }
                         }
-                    }
-                registry.registerClockChangeListener(listener)
-                send()
-                awaitClose { registry.unregisterClockChangeListener(listener) }
+                    registry.registerClockChangeListener(listener)
+                    send(Unit)
+                    awaitClose { registry.unregisterClockChangeListener(listener) }
+                },
+            ) { clockList, _ ->
+                val metadata = registry.settings?.metadata
+                clockList.clocksById[registry.activeClockId]?.toModel(
+                    isSelected = true,
+                    selectedColorId = metadata?.getSelectedColorId(),
+                    colorTone = metadata?.getColorTone()
+                            ?: ClockMetadataModel.DEFAULT_COLOR_TONE_PROGRESS,
+                    seedColor = registry.seedColor
+                )
             }
             .flowOn(mainDispatcher)
             .mapNotNull { it }
@@ -163,6 +170,55 @@ class ClockPickerRepositoryImpl(
         )
     }
 
+    override suspend fun setClockOption(option: ClockSnapshotModel) {
+        coroutineScope {
+            // The size is a separate setting, write it alongside the clock settings.
+            option.clockSize?.let { launch { setClockSize(it) } }
+            val colorToneProgress = option.colorToneProgress
+            if (option.clockId != null || colorToneProgress != null) {
+                registry.mutateSetting { oldSettings ->
+                    val newSettings =
+                        oldSettings.copy(
+                            clockId = option.clockId ?: oldSettings.clockId,
+                            seedColor =
+                                if (colorToneProgress != null) option.seedColor
+                                else oldSettings.seedColor,
+                        )
+                    newSettings.metadata =
+                        if (colorToneProgress != null) {
+                            oldSettings.metadata
+                                .put(KEY_METADATA_SELECTED_COLOR_ID, option.selectedColorId)
+                                .put(KEY_METADATA_COLOR_TONE_PROGRESS, colorToneProgress)
+                        } else {
+                            oldSettings.metadata
+                        }
+                    newSettings
+                }
+            }
+        }
+    }
+
+    override suspend fun getCurrentClockOption(): ClockSnapshotModel {
+        val clockSize = selectedClockSize.first()
+        return withContext(mainDispatcher) {
+            // Reuse the shared list of clocks if it's being observed, it's only replayed then.
+            val clocks =
+                clockList.replayCache.lastOrNull() ?: IndexedClockList(registry.getClocks())
+            val clockId = clocks.clocksById[registry.activeClockId]?.clockId
+            val metadata = registry.settings?.metadata
+            ClockSnapshotModel(
+                clockId = clockId,
+                clockSize = clockSize,
+                selectedColorId = clockId?.let { metadata?.getSelectedColorId() },
+                colorToneProgress =
+                    clockId?.let {
+                        metadata?.getColorTone() ?: ClockMetadataModel.DEFAULT_COLOR_TONE_PROGRESS
+                    },
+                seedColor = clockId?.let { registry.seedColor },
+            )
+        }
+    }
+
     private fun JSONObject.getSelectedColorId(): String? {
         return if (this.isNull(KEY_METADATA_SELECTED_COLOR_ID)) {
             null
@@ -194,14 +250,36 @@ class ClockPickerRepositoryImpl(
         )
     }
 
+    /** An immutable list of clocks, indexed by clock id. */
+    private class IndexedClockList(val clocks: List<ClockMetadata>) {
+        val clocksById: Map<String, ClockMetadata> = clocks.associateBy { it.clockId }
+    }
+
     companion object {
         // The selected color in the color option list
-        private const val KEY_METADATA_SELECTED_COLOR_ID = "metadataSelectedColorId"
+        @VisibleForTesting const val KEY_METADATA_SELECTED_COLOR_ID = "metadataSelectedColorId"
 
         // The color tone to apply to the selected color
-        private const val KEY_METADATA_COLOR_TONE_PROGRESS = "metadataColorToneProgress"
+        @VisibleForTesting const val KEY_METADATA_COLOR_TONE_PROGRESS = "metadataColorToneProgress"
 
         // The default clock size is 1, which means dynamic
         private const val DEFAULT_CLOCK_SIZE = 1
+
+        // The longest a change of the list of clocks is held back, to be coalesced with the next.
+        @VisibleForTesting const val CLOCK_LIST_COALESCING_WINDOW_MILLIS = 100L
     }
 }
+
+/**
+ * Emits the latest value of this flow as soon as [isSettled] is true, without waiting. After that,
+ * values are emitted at most once every [windowMillis], the latest one of each window being kept.
+ */
+@VisibleForTesting
+internal fun <T> Flow<T>.coalesceAfter(isSettled: Flow<Boolean>, windowMillis: Long): Flow<T> =
+    flow {
+        isSettled.first { it }
+        conflate().collect { value ->
+            emit(value)
+            delay(windowMillis)
+        }
+    }
@@ -33,6 +33,8 @@ import com.android.wallpaper.module.InjectorProvider
 import java.util.concurrent.Executors
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.launch
 
 /**
  * Provide the [ClockRegistry] singleton. Note that we need to make sure that the [PluginManager]
@@ -44,26 +46,45 @@ class ClockRegistryProvider(
     private val mainDispatcher: CoroutineDispatcher,
     private val backgroundDispatcher: CoroutineDispatcher,
 ) {
+    private val pluginScanTracker = PluginScanTracker(context.mainExecutor)
+    /**
+     * Whether the clock plugins installed when the registry started listening are all loaded, so
+     * that its list of clocks is complete. Later plugin changes are reported by the registry's
+     * listeners as usual.
+     */
+    val isPluginScanSettled: StateFlow<Boolean> = pluginScanTracker.isSettled
+
     private val clockRegistry: ClockRegistry by lazy {
         ClockRegistry(
-            context,
-            createPluginManager(context),
-            coroutineScope,
-            mainDispatcher,
-            backgroundDispatcher,
-            isEnabled = true,
-            handleAllUsers = false,
-            DefaultClockProvider(context, LayoutInflater.from(context), context.resources),
-            keepAllLoaded = true,
-            subTag = "Picker",
-            isTransitClockEnabled =
-                InjectorProvider.getInjector().getFlags().isTransitClockEnabled(context)
-        )
+                context,
+                createPluginManager(context),
+                coroutineScope,
+                mainDispatcher,
+                backgroundDispatcher,
+                isEnabled = true,
+                handleAllUsers = false,
+                DefaultClockProvider(context, LayoutInflater.from(context), context.resources),
+                // The carousel creates every clock, which needs all the plugins loaded. The clock
+                // views, the costly part, are bounded by the ClockViewFactoryImpl cache instead.
+                keepAllLoaded = true,
+                subTag = "Picker",
+                isTransitClockEnabled =
+                    InjectorProvider.getInjector().getFlags().isTransitClockEnabled(context)
+            )
+            .also {
+                // Listeners in ClockRegistry get cleaned up when app ended
+                it.registerListeners()
+                pluginScanTracker.onScanStarted(coroutineScope)
+            }
     }
 
-    init {
-        // Listeners in ClockRegistry get cleaned up when app ended
-        clockRegistry.registerListeners()
+    /**
+     * Creates the registry and starts loading the clock plugins in the background, so that the
+     * clocks are ready by the time a screen shows them. The registry is otherwise created by the
+     * first call to [get].
+     */
+    fun warmUp() {
+        coroutineScope.launch(backgroundDispatcher) { clockRegistry }
     }
 
     fun get() = clockRegistry
@@ -108,7 +129,7 @@ class ClockRegistryProvider(
                 context,
                 context.packageManager,
                 context.mainExecutor,
-                Executors.newSingleThreadExecutor(),
+                pluginScanTracker.track(Executors.newSingleThreadExecutor()),
                 context.getSystemService(NotificationManager::class.java),
                 pluginEnabler,
                 privilegedPlugins,
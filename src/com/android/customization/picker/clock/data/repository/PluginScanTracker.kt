@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.android.customization.picker.clock.data.repository
+
+import androidx.annotation.VisibleForTesting
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.launch
+
+/**
+ * Keeps track of the plugin loading tasks of the clock registry, to tell when the plugins installed
+ * when it started listening are all loaded.
+ *
+ * @param mainExecutor the executor loaded plugins are handed to the registry on.
+ */
+class PluginScanTracker(private val mainExecutor: Executor) {
+
+    private val _isSettled = MutableStateFlow(false)
+    /**
+     * Whether the plugin scan is over, either because all the plugin loading tasks finished or
+     * because they took longer than [PLUGIN_SCAN_TIMEOUT_MILLIS].
+     */
+    val isSettled: StateFlow<Boolean> = _isSettled.asStateFlow()
+
+    // The plugin loading tasks that haven't finished yet.
+    private val pendingTasks = AtomicInteger()
+
+    /** Runs the plugin loading tasks on [executor], keeping track of the ones not finished yet. */
+    fun track(executor: Executor): Executor {
+        return Executor { task ->
+            pendingTasks.incrementAndGet()
+            executor.execute {
+                try {
+                    task.run()
+                } finally {
+                    if (pendingTasks.decrementAndGet() == 0) {
+                        onTasksFinished()
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Called once the registry listens to plugins, so that every plugin installed then has had its
+     * loading task queued.
+     */
+    fun onScanStarted(scope: CoroutineScope) {
+        if (pendingTasks.get() == 0) {
+            onTasksFinished()
+        }
+        scope.launch {
+            // Don't hold the clocks back forever if a plugin takes too long to load.
+            delay(PLUGIN_SCAN_TIMEOUT_MILLIS)
+            _isSettled.value = true
+        }
+    }
+
+    private fun onTasksFinished() {
+        // Loaded plugins are handed to the registry on the main thread, this runs after them.
+        mainExecutor.execute {
+            if (pendingTasks.get() == 0) {
+                _isSettled.value = true
+            }
+        }
+    }
+
+    companion object {
+        @VisibleForTesting const val PLUGIN_SCAN_TIMEOUT_MILLIS = 1000L
+    }
+}
@@ -26,7 +26,6 @@ import com.android.customization.picker.clock.shared.model.ClockSnapshotModel
 import javax.inject.Provider
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.distinctUntilChanged
-import kotlinx.coroutines.flow.firstOrNull
 import kotlinx.coroutines.flow.map
 
 /**
@@ -79,19 +78,11 @@ class ClockPickerInteractor(
     }
 
     suspend fun setClockOption(clockSnapshotModel: ClockSnapshotModel) {
-        // [ClockCarouselViewModel] is monitoring the [ClockPickerInteractor.setSelectedClock] job,
-        // so it needs to finish last.
         storeCurrentClockOption(clockSnapshotModel)
 
-        clockSnapshotModel.clockSize?.let { repository.setClockSize(it) }
-        clockSnapshotModel.colorToneProgress?.let {
-            repository.setClockColor(
-                selectedColorId = clockSnapshotModel.selectedColorId,
-                colorToneProgress = clockSnapshotModel.colorToneProgress,
-                seedColor = clockSnapshotModel.seedColor
-            )
-        }
-        clockSnapshotModel.clockId?.let { repository.setSelectedClock(it) }
+        // [ClockCarouselViewModel] is monitoring the [ClockPickerInteractor.setSelectedClock] job,
+        // this only returns once every option is written.
+        repository.setClockOption(clockSnapshotModel)
     }
 
     /**
@@ -103,16 +94,32 @@ class ClockPickerInteractor(
      * [selectedColorId] and [seedColor] have null state collide with nullable type, but we know
      * they are presented whenever there's a [colorToneProgress].
      */
-    suspend fun getCurrentClockToRestore(latestOption: ClockSnapshotModel? = null) =
-        ClockSnapshotModel(
-            clockId = latestOption?.clockId ?: selectedClockId.firstOrNull(),
-            clockSize = latestOption?.clockSize ?: selectedClockSize.firstOrNull(),
-            colorToneProgress = latestOption?.colorToneProgress ?: colorToneProgress.firstOrNull(),
+    suspend fun getCurrentClockToRestore(
+        latestOption: ClockSnapshotModel? = null
+    ): ClockSnapshotModel {
+        // Read everything the latest option doesn't override at once, rather than field by field.
+        val currentOption =
+            if (
+                latestOption?.clockId != null &&
+                    latestOption.clockSize != null &&
+                    latestOption.colorToneProgress != null &&
+                    latestOption.selectedColorId != null &&
+                    latestOption.seedColor != null
+            ) {
+                null
+            } else {
+                repository.getCurrentClockOption()
+            }
+        return ClockSnapshotModel(
+            clockId = latestOption?.clockId ?: currentOption?.clockId,
+            clockSize = latestOption?.clockSize ?: currentOption?.clockSize,
+            colorToneProgress = latestOption?.colorToneProgress ?: currentOption?.colorToneProgress,
             selectedColorId = latestOption?.colorToneProgress?.let { latestOption.selectedColorId }
-                    ?: selectedColorId.firstOrNull(),
+                    ?: currentOption?.selectedColorId,
             seedColor = latestOption?.colorToneProgress?.let { latestOption.seedColor }
-                    ?: seedColor.firstOrNull(),
+                    ?: currentOption?.seedColor,
         )
+    }
 
     private suspend fun storeCurrentClockOption(clockSnapshotModel: ClockSnapshotModel) {
         val option = getCurrentClockToRestore(clockSnapshotModel)
@@ -23,6 +23,7 @@ import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import android.widget.FrameLayout
+import android.widget.ImageView
 import androidx.constraintlayout.helper.widget.Carousel
 import androidx.constraintlayout.motion.widget.MotionLayout
 import androidx.constraintlayout.widget.ConstraintSet
@@ -35,6 +36,7 @@ import com.android.systemui.plugins.clocks.ClockController
 import com.android.wallpaper.R
 import com.android.wallpaper.picker.FixedWidthDisplayRatioFrameLayout
 import java.lang.Float.max
+import kotlin.math.roundToInt
 
 class ClockCarouselView(
     context: Context,
@@ -58,6 +60,19 @@ class ClockCarouselView(
     private var toCenterCardView: View? = null
     private var offCenterCardView: View? = null
 
+    /**
+     * Whether the large clocks that aren't in the middle of the carousel are shown as snapshots
+     * rather than live views. Only the middle clock then animates and ticks. Takes effect the next
+     * time the carousel is set up.
+     */
+    var isOffCenterClockSnapshotEnabled = true
+
+    private val onLargeViewSnapshotsInvalidated: () -> Unit = {
+        if (::adapter.isInitialized) {
+            adapter.refreshOffCenterClockSnapshots()
+        }
+    }
+
     init {
         val clockCarousel = LayoutInflater.from(context).inflate(R.layout.clock_carousel, this)
         carousel = clockCarousel.requireViewById(R.id.carousel)
@@ -69,9 +84,36 @@ class ClockCarouselView(
      * Make sure to set [clockViewFactory] before calling any functions from [ClockCarouselView].
      */
     fun setClockViewFactory(factory: ClockViewFactory) {
+        if (isAttachedToWindow) {
+            if (::clockViewFactory.isInitialized) {
+                clockViewFactory.removeLargeViewSnapshotsInvalidatedListener(
+                    onLargeViewSnapshotsInvalidated
+                )
+            }
+            factory.addLargeViewSnapshotsInvalidatedListener(onLargeViewSnapshotsInvalidated)
+        }
         clockViewFactory = factory
     }
 
+    override fun onAttachedToWindow() {
+        super.onAttachedToWindow()
+        if (::clockViewFactory.isInitialized) {
+            clockViewFactory.addLargeViewSnapshotsInvalidatedListener(
+                onLargeViewSnapshotsInvalidated
+            )
+        }
+    }
+
+    override fun onDetachedFromWindow() {
+        // The factory outlives the carousel.
+        if (::clockViewFactory.isInitialized) {
+            clockViewFactory.removeLargeViewSnapshotsInvalidatedListener(
+                onLargeViewSnapshotsInvalidated
+            )
+        }
+        super.onDetachedFromWindow()
+    }
+
     // This function is for the custom accessibility action to trigger a transition to the next
     // carousel item. If the current item is the last item in the carousel, the next item
     // will be the first item.
@@ -137,7 +179,14 @@ class ClockCarouselView(
             overrideScreenPreviewWidth()
         }
 
-        adapter = ClockCarouselAdapter(clockSize, clocks, clockViewFactory, onClockSelected)
+        adapter =
+            ClockCarouselAdapter(
+                clockSize,
+                clocks,
+                clockViewFactory,
+                isOffCenterClockSnapshotEnabled,
+                onClockSelected,
+            )
         carousel.isInfinite = clocks.size >= MIN_CLOCKS_TO_ENABLE_INFINITE_CAROUSEL
         carousel.setAdapter(adapter)
         val indexOfSelectedClock =
@@ -147,6 +196,7 @@ class ClockCarouselView(
                 .takeIf { it != -1 }
                 ?: 0
         carousel.jumpToIndex(indexOfSelectedClock)
+        adapter.pinClocksAround(indexOfSelectedClock)
         motionLayout.setTransitionListener(
             object : MotionLayout.TransitionListener {
 
@@ -191,6 +241,15 @@ class ClockCarouselView(
                     val scalingUpClockId = adapter.clocks[scalingUpIdx].clockId
                     offCenterClockController = clockViewFactory.getController(scalingDownClockId)
                     toCenterClockController = clockViewFactory.getController(scalingUpClockId)
+                    // The clock becoming the middle one may be a snapshot, it animates while
+                    // swiping so it needs to be live.
+                    adapter.showLiveLargeClock(
+                        motionLayout.findViewById(
+                            if (endId == R.id.next) R.id.clock_host_view_3
+                            else R.id.clock_host_view_1
+                        ),
+                        scalingUpClockId,
+                    )
                     offCenterClockScaleView = motionLayout.findViewById(R.id.clock_scale_view_2)
                     toCenterClockScaleView =
                         motionLayout.findViewById(
@@ -318,6 +377,7 @@ class ClockCarouselView(
         //    We only call jumpToIndex when the index is different from the current carousel.
         if (index < carousel.count && index != carousel.currentIndex) {
             carousel.jumpToIndex(index)
+            adapter.pinClocksAround(index)
         }
     }
 
@@ -380,9 +440,12 @@ class ClockCarouselView(
         val clockSize: ClockSize,
         val clocks: List<ClockCarouselItemViewModel>,
         private val clockViewFactory: ClockViewFactory,
+        private val isOffCenterClockSnapshotEnabled: Boolean,
         private val onClockSelected: (clock: ClockCarouselItemViewModel) -> Unit
     ) : Carousel.Adapter {
 
+        private val offCenterClockSnapshots = OffCenterClockSnapshots(clockViewFactory)
+
         fun getContentDescription(index: Int, resources: Resources): String {
             return clocks[index].contentDescription
         }
@@ -403,12 +466,18 @@ class ClockCarouselView(
                 getClockHostViewId(viewRoot.id)?.let { viewRoot.findViewById(it) as? ClockHostView }
                     ?: return
             val clockId = clocks[index].clockId
+            val isMiddleView = isMiddleView(viewRoot.id)
 
             // Add the clock view to the cloc host view
             clockHostView.removeAllViews()
             val clockView =
                 when (clockSize) {
-                    ClockSize.DYNAMIC -> clockViewFactory.getLargeView(clockId)
+                    ClockSize.DYNAMIC ->
+                        if (isMiddleView) {
+                            clockViewFactory.getLargeView(clockId)
+                        } else {
+                            getOffCenterLargeClockView(clockHostView, clockId)
+                        }
                     ClockSize.SMALL -> clockViewFactory.getSmallView(clockId)
                 }
             // The clock view might still be attached to an existing parent. Detach before adding to
@@ -416,8 +485,6 @@ class ClockCarouselView(
             (clockView.parent as? ViewGroup)?.removeView(clockView)
             clockHostView.addView(clockView)
 
-            val isMiddleView = isMiddleView(viewRoot.id)
-
             // Accessibility
             viewRoot.contentDescription = getContentDescription(index, view.resources)
             viewRoot.isSelected = isMiddleView
@@ -440,6 +507,55 @@ class ClockCarouselView(
             cardView.alpha = if (isMiddleView) 0f else 1f
         }
 
+        /**
+         * Returns the view of a large clock that isn't in the middle of the carousel. It's drawn
+         * small and mostly hidden, so a snapshot of it is shown when possible rather than the live
+         * clock, which would keep animating and ticking.
+         */
+        private fun getOffCenterLargeClockView(
+            clockHostView: ClockHostView,
+            clockId: String,
+        ): View {
+            if (!isOffCenterClockSnapshotEnabled) {
+                return clockViewFactory.getLargeView(clockId)
+            }
+            val snapshotWidth =
+                (clockHostView.resources.getDimensionPixelSize(R.dimen.screen_preview_width) *
+                        CLOCK_CAROUSEL_VIEW_SCALE)
+                    .roundToInt()
+            return offCenterClockSnapshots.getView(clockHostView, clockId, snapshotWidth)
+                ?: clockViewFactory.getLargeView(clockId)
+        }
+
+        /**
+         * Takes the snapshots of the off-center clocks that are shown again, after the factory
+         * dropped them.
+         */
+        fun refreshOffCenterClockSnapshots() {
+            offCenterClockSnapshots.refresh { clockHostView, clockId ->
+                showLiveLargeClock(clockHostView, clockId)
+            }
+        }
+
+        /**
+         * Replaces the snapshot shown in [clockHostView], if any, with the live large clock, still
+         * in its off-center state.
+         */
+        fun showLiveLargeClock(clockHostView: ClockHostView?, clockId: String) {
+            if (clockHostView?.getChildAt(0) !is ImageView) {
+                return
+            }
+            clockHostView.removeAllViews()
+            val clockView = clockViewFactory.getLargeView(clockId)
+            (clockView.parent as? ViewGroup)?.removeView(clockView)
+            clockHostView.addView(clockView)
+            clockViewFactory
+                .getController(clockId)
+                .largeClock
+                .animations
+                .onPickerCarouselSwiping(0F)
+        }
+
         private fun initializeDynamicClockView(
             isMiddleView: Boolean,
             clockScaleView: View,
@@ -500,8 +616,19 @@ class ClockCarouselView(
         }
 
         override fun onNewItem(index: Int) {
+            pinClocksAround(index)
             onClockSelected.invoke(clocks[index])
         }
+
+        /**
+         * Keeps the clocks the carousel can show around [index] cached, so that swiping doesn't
+         * create them again.
+         */
+        fun pinClocksAround(index: Int) {
+            clockViewFactory.setPinnedClocks(
+                ClockViewFactory.getCarouselClockIds(clocks.map { it.clockId }, index).toSet()
+            )
+        }
     }
 
     companion object {
@@ -15,15 +15,37 @@
  */
 package com.android.customization.picker.clock.ui.view
 
+import android.graphics.Bitmap
 import android.view.View
 import androidx.annotation.ColorInt
 import androidx.lifecycle.LifecycleOwner
+import com.android.systemui.plugins.clocks.ClockConfig
 import com.android.systemui.plugins.clocks.ClockController
 
 interface ClockViewFactory {
 
     fun getController(clockId: String): ClockController
 
+    /**
+     * Returns the config of the clock, e.g. its description, or null if no controller of that clock
+     * was ever created. Configs are kept once known, and this never creates a controller.
+     */
+    fun getConfig(clockId: String): ClockConfig?
+
+    /**
+     * Sets the clocks that must stay cached, e.g. the selected clock and its neighbors in the
+     * carousel, replacing the ones previously set. Other clocks may be released and created again
+     * the next time they're needed.
+     */
+    fun setPinnedClocks(clockIds: Set<String>)
+
+    /**
+     * Creates the controllers of the given clocks that aren't cached yet, ahead of them being
+     * shown, so that swiping the carousel doesn't create any. Must be called from the main thread,
+     * returns once every clock is created.
+     */
+    suspend fun prewarm(clockIds: Collection<String>)
+
     /**
      * Reset the large view to its initial state when getting the view. This is because some view
      * configs, e.g. animation state, might change during the reuse of the clock view in the app.
@@ -36,6 +58,21 @@ interface ClockViewFactory {
      */
     fun getSmallView(clockId: String): View
 
+    /**
+     * Returns a snapshot of the large view, as it's shown off-center in the carousel, scaled to be
+     * [width] pixels wide. Snapshots are kept until the clock would draw differently, e.g. its
+     * color changed or a minute passed. Returns null if the large view can't be drawn right now.
+     */
+    fun getLargeViewSnapshot(clockId: String, width: Int): Bitmap?
+
+    /**
+     * Adds a listener called on the main thread whenever snapshots from [getLargeViewSnapshot] are
+     * dropped, so that the ones shown can be taken again.
+     */
+    fun addLargeViewSnapshotsInvalidatedListener(listener: () -> Unit)
+
+    fun removeLargeViewSnapshotsInvalidatedListener(listener: () -> Unit)
+
     fun updateColorForAllClocks(@ColorInt seedColor: Int?)
 
     fun updateColor(clockId: String, @ColorInt seedColor: Int?)
@@ -49,4 +86,24 @@ interface ClockViewFactory {
     fun onDestroy()
 
     fun unregisterTimeTicker(owner: LifecycleOwner)
+
+    companion object {
+        /** How many clocks the carousel shows on each side of the selected one. */
+        const val CAROUSEL_NEIGHBOR_COUNT = 2
+        /** How many clocks the carousel shows at once, the selected one and its neighbors. */
+        const val CAROUSEL_CLOCK_COUNT = 2 * CAROUSEL_NEIGHBOR_COUNT + 1
+
+        /**
+         * Returns the clocks the carousel shows when the clock at [index] of [clockIds] is
+         * selected, wrapping around the ends like the carousel does.
+         */
+        fun getCarouselClockIds(clockIds: List<String>, index: Int): List<String> {
+            if (clockIds.isEmpty()) {
+                return emptyList()
+            }
+            return (-CAROUSEL_NEIGHBOR_COUNT..CAROUSEL_NEIGHBOR_COUNT)
+                .map { offset -> clockIds[Math.floorMod(index + offset, clockIds.size)] }
+                .distinct()
+        }
+    }
 }
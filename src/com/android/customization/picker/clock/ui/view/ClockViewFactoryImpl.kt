@@ -15,43 +15,182 @@
  */
 package com.android.customization.picker.clock.ui.view
 
+import android.app.ActivityManager
 import android.app.WallpaperColors
 import android.app.WallpaperManager
+import android.content.ComponentCallbacks2
 import android.content.Context
+import android.content.res.Configuration
 import android.content.res.Resources
+import android.graphics.Bitmap
+import android.graphics.Canvas
 import android.graphics.Point
 import android.graphics.Rect
+import android.os.Looper
+import android.os.MessageQueue
+import android.util.Log
 import android.view.View
 import android.widget.FrameLayout
 import androidx.annotation.ColorInt
 import androidx.core.text.util.LocalePreferences
 import androidx.lifecycle.LifecycleOwner
+import com.android.systemui.plugins.clocks.ClockConfig
 import com.android.systemui.plugins.clocks.ClockController
 import com.android.systemui.plugins.clocks.WeatherData
 import com.android.systemui.shared.clocks.ClockRegistry
 import com.android.wallpaper.R
 import com.android.wallpaper.util.TimeUtils.TimeTicker
 import java.util.concurrent.ConcurrentHashMap
+import kotlin.coroutines.resume
+import kotlin.math.roundToInt
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlinx.coroutines.withContext
 
 /**
- * Provide reusable clock view and related util functions.
+ * Creates and caches the clock controllers and views shown in the picker.
  *
- * @property screenSize The Activity or Fragment's window size.
+ * Every controller holds the whole view hierarchy of a clock face, so at most [maxCachedClocks] of
+ * them are kept, least recently used first out. The clocks set through [setPinnedClocks], the
+ * selected one and its carousel neighbors, are never evicted. When the system is low on memory
+ * all the other clocks are dropped. Clocks still shown in a window are never evicted either.
  */
 class ClockViewFactoryImpl(
     private val appContext: Context,
     val screenSize: Point,
     private val wallpaperManager: WallpaperManager,
     private val registry: ClockRegistry,
-) : ClockViewFactory {
+    private val backgroundDispatcher: CoroutineDispatcher,
+    private val maxCachedClocks: Int = DEFAULT_MAX_CACHED_CLOCKS,
+) : ClockViewFactory, ComponentCallbacks2 {
     private val resources = appContext.resources
-    private val timeTickListeners: ConcurrentHashMap<Int, TimeTicker> = ConcurrentHashMap()
-    private val clockControllers: HashMap<String, ClockController> = HashMap()
+    // The lifecycle owners that want the clocks to tick. A single receiver serves all of them.
+    private val timeTickOwners: MutableSet<Int> = ConcurrentHashMap.newKeySet()
+    private var timeTicker: TimeTicker? = null
+    // Access ordered, so that the least recently used clocks are evicted first.
+    private val clockControllers: LinkedHashMap<String, ClockController> =
+        LinkedHashMap(/* initialCapacity= */ 16, /* loadFactor= */ 0.75f, /* accessOrder= */ true)
     private val smallClockFrames: HashMap<String, FrameLayout> = HashMap()
+    private val largeViewSnapshots: HashMap<String, Bitmap> = HashMap()
+    private val largeViewSnapshotsInvalidatedListeners: MutableSet<() -> Unit> = LinkedHashSet()
+    private var pinnedClockIds: Set<String> = emptySet()
+    // Configs outlive the controllers they're read from, they're tiny and don't change.
+    private val clockConfigs: MutableMap<String, ClockConfig> = ConcurrentHashMap()
+    // Whether the lock screen wallpaper is dark, read once for all the clocks created.
+    @Volatile private var cachedIsWallpaperDark: Boolean? = null
+    // The seed colors set so far, applied to the clocks created after they were set.
+    private var allClocksSeedColor: Int? = null
+    private val clockSeedColors: MutableMap<String, Int?> = HashMap()
+    private var areComponentCallbacksRegistered = false
+
+    /** How many clock controllers have been created, including the ones created again. */
+    var createdControllerCount = 0
+        private set
+
+    /** How many clock controllers have been evicted to stay within the cache budget. */
+    var evictedControllerCount = 0
+        private set
 
     override fun getController(clockId: String): ClockController {
         return clockControllers[clockId]
-            ?: initClockController(clockId).also { clockControllers[clockId] = it }
+            ?: initClockController(clockId).also {
+                createdControllerCount++
+                clockControllers[clockId] = it
+                trimTo(maxCachedClocks, keepClockId = clockId)
+                // Registered again after onDestroy, as the factory outlives the activity.
+                if (!areComponentCallbacksRegistered) {
+                    appContext.registerComponentCallbacks(this)
+                    areComponentCallbacksRegistered = true
+                }
+            }
+    }
+
+    override fun getConfig(clockId: String): ClockConfig? {
+        return clockConfigs[clockId]
+    }
+
+    override fun setPinnedClocks(clockIds: Set<String>) {
+        pinnedClockIds = clockIds
+        trimTo(maxCachedClocks)
+    }
+
+    override suspend fun prewarm(clockIds: Collection<String>) {
+        if (clockIds.all { it in clockControllers }) {
+            return
+        }
+        if (cachedIsWallpaperDark == null) {
+            // Reading the wallpaper colors is a binder call, and the only part of creating a clock
+            // that doesn't need the main thread.
+            cachedIsWallpaperDark =
+                withContext(backgroundDispatcher) { isLockscreenWallpaperDark() }
+        }
+        clockIds.forEach { clockId ->
+            // Create a single clock per idle pass of the main thread, so that no frame pays for it.
+            awaitMainThreadIdle()
+            if (clockId !in clockControllers) {
+                getController(clockId)
+            }
+        }
+    }
+
+    private suspend fun awaitMainThreadIdle() {
+        suspendCancellableCoroutine { continuation ->
+            val queue = Looper.getMainLooper().queue
+            val idleHandler =
+                MessageQueue.IdleHandler {
+                    continuation.resume(Unit)
+                    false
+                }
+            queue.addIdleHandler(idleHandler)
+            continuation.invokeOnCancellation { queue.removeIdleHandler(idleHandler) }
+        }
+    }
+
+    /**
+     * Evicts the least recently used clocks that aren't pinned, nor [keepClockId], until at most
+     * [size] are left. Clocks whose views are still in a window are kept too, evicting them would
+     * empty a clock the user can see.
+     */
+    private fun trimTo(size: Int, keepClockId: String? = null) {
+        val iterator = clockControllers.keys.iterator()
+        var evicted = 0
+        while (clockControllers.size > size && iterator.hasNext()) {
+            val clockId = iterator.next()
+            if (clockId in pinnedClockIds || clockId == keepClockId || isAttached(clockId)) {
+                continue
+            }
+            iterator.remove()
+            smallClockFrames.remove(clockId)?.removeAllViews()
+            largeViewSnapshots.remove(clockId)
+            evicted++
+        }
+        if (evicted > 0) {
+            evictedControllerCount += evicted
+            Log.d(
+                TAG,
+                "Evicted $evicted clocks, ${clockControllers.size} cached. " +
+                    "Created: $createdControllerCount, evicted: $evictedControllerCount",
+            )
+        }
+    }
+
+    private fun isAttached(clockId: String): Boolean {
+        return smallClockFrames[clockId]?.parent != null ||
+            clockControllers[clockId]?.largeClock?.view?.parent != null
+    }
+
+    override fun onTrimMemory(level: Int) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            largeViewSnapshots.clear()
+            trimTo(0)
+        }
+    }
+
+    override fun onConfigurationChanged(newConfig: Configuration) {}
+
+    override fun onLowMemory() {
+        largeViewSnapshots.clear()
+        trimTo(0)
     }
 
     /**
@@ -61,6 +200,8 @@ class ClockViewFactoryImpl(
     override fun getLargeView(clockId: String): View {
         return getController(clockId).largeClock.let {
             it.animations.onPickerCarouselSwiping(1F)
+            // Detached clocks don't get ticks, catch up before being shown again.
+            it.events.onTimeTick()
             it.view
         }
     }
@@ -78,9 +219,58 @@ class ClockViewFactoryImpl(
                 }
         smallClockFrame.translationX = 0F
         smallClockFrame.translationY = 0F
+        // Detached clocks don't get ticks, catch up before being shown again.
+        getController(clockId).smallClock.events.onTimeTick()
         return smallClockFrame
     }
 
+    override fun getLargeViewSnapshot(clockId: String, width: Int): Bitmap? {
+        largeViewSnapshots[clockId]
+            ?.takeIf { it.width == width }
+            ?.let {
+                return it
+            }
+        val largeClock = getController(clockId).largeClock
+        val view = largeClock.view
+        if (view.parent == null) {
+            // Lay the clock out as the carousel does, at the lock screen size.
+            view.measure(
+                View.MeasureSpec.makeMeasureSpec(screenSize.x, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(screenSize.y, View.MeasureSpec.EXACTLY),
+            )
+            view.layout(0, 0, view.measuredWidth, view.measuredHeight)
+        }
+        if (width <= 0 || !view.isLaidOut || view.width == 0 || view.height == 0) {
+            return null
+        }
+        largeClock.animations.onPickerCarouselSwiping(0F)
+        largeClock.events.onTimeTick()
+        val scale = width / view.width.toFloat()
+        val snapshot =
+            Bitmap.createBitmap(
+                width,
+                (view.height * scale).roundToInt().coerceAtLeast(1),
+                Bitmap.Config.ARGB_8888,
+            )
+        val canvas = Canvas(snapshot)
+        canvas.scale(scale, scale)
+        view.draw(canvas)
+        largeViewSnapshots[clockId] = snapshot
+        return snapshot
+    }
+
+    override fun addLargeViewSnapshotsInvalidatedListener(listener: () -> Unit) {
+        largeViewSnapshotsInvalidatedListeners.add(listener)
+    }
+
+    override fun removeLargeViewSnapshotsInvalidatedListener(listener: () -> Unit) {
+        largeViewSnapshotsInvalidatedListeners.remove(listener)
+    }
+
+    private fun onLargeViewSnapshotsInvalidated() {
+        largeViewSnapshotsInvalidatedListeners.toList().forEach { it() }
+    }
+
     private fun createSmallClockFrame(): FrameLayout {
         val smallClockFrame = FrameLayout(appContext)
         val layoutParams =
@@ -103,19 +293,29 @@ class ClockViewFactoryImpl(
         appContext.resources.getDimensionPixelSize(R.dimen.clock_padding_start)
 
     override fun updateColorForAllClocks(@ColorInt seedColor: Int?) {
+        allClocksSeedColor = seedColor
+        clockSeedColors.clear()
+        largeViewSnapshots.clear()
         clockControllers.values.forEach { it.events.onSeedColorChanged(seedColor = seedColor) }
+        onLargeViewSnapshotsInvalidated()
     }
 
     override fun updateColor(clockId: String, @ColorInt seedColor: Int?) {
+        clockSeedColors[clockId] = seedColor
+        largeViewSnapshots.remove(clockId)
         clockControllers[clockId]?.events?.onSeedColorChanged(seedColor)
+        onLargeViewSnapshotsInvalidated()
     }
 
     override fun updateRegionDarkness() {
         val isRegionDark = isLockscreenWallpaperDark()
+        cachedIsWallpaperDark = isRegionDark
+        largeViewSnapshots.clear()
         clockControllers.values.forEach {
             it.largeClock.events.onRegionDarknessChanged(isRegionDark)
             it.smallClock.events.onRegionDarknessChanged(isRegionDark)
         }
+        onLargeViewSnapshotsInvalidated()
     }
 
     private fun isLockscreenWallpaperDark(): Boolean {
@@ -124,39 +324,59 @@ class ClockViewFactoryImpl(
     }
 
     override fun updateTimeFormat(clockId: String) {
-        getController(clockId)
-            .events
-            .onTimeFormatChanged(android.text.format.DateFormat.is24HourFormat(appContext))
+        largeViewSnapshots.remove(clockId)
+        // Clocks that aren't created yet get the current time format when they are.
+        clockControllers[clockId]
+            ?.events
+            ?.onTimeFormatChanged(android.text.format.DateFormat.is24HourFormat(appContext))
+        onLargeViewSnapshotsInvalidated()
     }
 
+    @Synchronized
     override fun registerTimeTicker(owner: LifecycleOwner) {
-        val hashCode = owner.hashCode()
-        if (timeTickListeners.keys.contains(hashCode)) {
-            return
+        if (timeTickOwners.add(owner.hashCode()) && timeTicker == null) {
+            timeTicker = TimeTicker.registerNewReceiver(appContext) { onTimeTick() }
         }
-
-        timeTickListeners[hashCode] = TimeTicker.registerNewReceiver(appContext) { onTimeTick() }
     }
 
     override fun onDestroy() {
-        timeTickListeners.forEach { (_, timeTicker) -> appContext.unregisterReceiver(timeTicker) }
-        timeTickListeners.clear()
+        synchronized(this) {
+            timeTicker?.let { appContext.unregisterReceiver(it) }
+            timeTicker = null
+            timeTickOwners.clear()
+        }
         clockControllers.clear()
         smallClockFrames.clear()
+        largeViewSnapshots.clear()
+        if (areComponentCallbacksRegistered) {
+            appContext.unregisterComponentCallbacks(this)
+            areComponentCallbacksRegistered = false
+        }
     }
 
+    /**
+     * Only ticks the clock faces that are shown. The ones scrolled out of the carousel, or never
+     * attached, catch up when they're populated again.
+     */
     private fun onTimeTick() {
+        // Snapshots show the time they were taken at, take them again when they're next needed.
+        largeViewSnapshots.clear()
         clockControllers.values.forEach {
-            it.largeClock.events.onTimeTick()
-            it.smallClock.events.onTimeTick()
+            if (it.largeClock.view.isShown) {
+                it.largeClock.events.onTimeTick()
+            }
+            if (it.smallClock.view.isShown) {
+                it.smallClock.events.onTimeTick()
+            }
         }
+        onLargeViewSnapshotsInvalidated()
     }
 
+    @Synchronized
     override fun unregisterTimeTicker(owner: LifecycleOwner) {
-        val hashCode = owner.hashCode()
-        timeTickListeners[hashCode]?.let {
-            appContext.unregisterReceiver(it)
-            timeTickListeners.remove(hashCode)
+        if (timeTickOwners.remove(owner.hashCode()) && timeTickOwners.isEmpty()) {
+            timeTicker?.let { appContext.unregisterReceiver(it) }
+            timeTicker = null
         }
     }
 
@@ -164,8 +384,10 @@ class ClockViewFactoryImpl(
         val controller =
             registry.createExampleClock(clockId).also { it?.initialize(resources, 0f, 0f) }
         checkNotNull(controller)
+        clockConfigs[clockId] = controller.config
 
-        val isWallpaperDark = isLockscreenWallpaperDark()
+        val isWallpaperDark =
+            cachedIsWallpaperDark ?: isLockscreenWallpaperDark().also { cachedIsWallpaperDark = it }
         // Initialize large clock
         controller.largeClock.events.onRegionDarknessChanged(isWallpaperDark)
         controller.largeClock.events.onFontSettingChanged(
@@ -180,6 +402,16 @@ class ClockViewFactoryImpl(
         )
         controller.smallClock.events.onTargetRegionChanged(getSmallClockRegion())
 
+        controller.events.onTimeFormatChanged(
+            android.text.format.DateFormat.is24HourFormat(appContext)
+        )
+
+        val seedColor =
+            if (clockId in clockSeedColors) clockSeedColors[clockId] else allClocksSeedColor
+        if (seedColor != null) {
+            controller.events.onSeedColorChanged(seedColor)
+        }
+
         // Use placeholder for weather clock preview in picker.
         // Use locale default temp unit since assistant default is not available in this context.
         val useCelsius =
@@ -222,12 +454,27 @@ class ClockViewFactoryImpl(
     }
 
     companion object {
+        private const val TAG = "ClockViewFactoryImpl"
+        // Leave some room for the clocks recently swiped out of the carousel.
+        const val DEFAULT_MAX_CACHED_CLOCKS = ClockViewFactory.CAROUSEL_CLOCK_COUNT + 3
+        // Low RAM devices only keep the clocks the carousel shows.
+        const val LOW_RAM_MAX_CACHED_CLOCKS = ClockViewFactory.CAROUSEL_CLOCK_COUNT
         const val DESCRIPTION_PLACEHODLER = ""
         const val TEMPERATURE_FAHRENHEIT_PLACEHOLDER = 58
         const val TEMPERATURE_CELSIUS_PLACEHOLDER = 21
         val WEATHERICON_PLACEHOLDER = WeatherData.WeatherStateIcon.MOSTLY_SUNNY
         const val USE_CELSIUS_PLACEHODLER = false
 
+        /** How many clocks a factory should keep cached on this device. */
+        fun getMaxCachedClocks(context: Context): Int {
+            val activityManager = context.getSystemService(ActivityManager::class.java)
+            return if (activityManager?.isLowRamDevice == true) {
+                LOW_RAM_MAX_CACHED_CLOCKS
+            } else {
+                DEFAULT_MAX_CACHED_CLOCKS
+            }
+        }
+
         private fun getStatusBarHeight(resource: Resources): Int {
             var result = 0
             val resourceId: Int = resource.getIdentifier("status_bar_height", "dimen", "android")
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.picker.clock.ui.view
+
+import android.view.View
+import android.widget.ImageView
+
+/**
+ * The snapshots of the large clocks shown off-center in the carousel, one view per clock host view.
+ *
+ * The factory drops its snapshots when the clocks would draw differently, e.g. their color changed
+ * or a minute passed, so the ones shown are taken again through [refresh].
+ */
+class OffCenterClockSnapshots(
+    private val clockViewFactory: ClockViewFactory,
+) {
+
+    private class Slot(val view: ImageView) {
+        var clockId = ""
+        var width = 0
+    }
+
+    // Per clock host view id.
+    private val slots = HashMap<Int, Slot>()
+
+    /**
+     * Returns the view showing the snapshot of the large clock, [width] pixels wide, to be added to
+     * [clockHostView], or null if the snapshot can't be taken right now.
+     */
+    fun getView(clockHostView: ClockHostView, clockId: String, width: Int): ImageView? {
+        val snapshot = clockViewFactory.getLargeViewSnapshot(clockId, width) ?: return null
+        val slot = slots.getOrPut(clockHostView.id) { Slot(createView(clockHostView)) }
+        slot.clockId = clockId
+        slot.width = width
+        slot.view.setImageBitmap(snapshot)
+        return slot.view
+    }
+
+    /**
+     * Takes the snapshots that are shown again. The ones that can't be taken are passed to
+     * [onSnapshotUnavailable], which should show the live clock instead.
+     */
+    fun refresh(onSnapshotUnavailable: (clockHostView: ClockHostView, clockId: String) -> Unit) {
+        slots.values.forEach { slot ->
+            val clockHostView = slot.view.parent as? ClockHostView ?: return@forEach
+            val snapshot = clockViewFactory.getLargeViewSnapshot(slot.clockId, slot.width)
+            if (snapshot != null) {
+                slot.view.setImageBitmap(snapshot)
+            } else {
+                onSnapshotUnavailable(clockHostView, slot.clockId)
+            }
+        }
+    }
+
+    private fun createView(clockHostView: ClockHostView): ImageView {
+        return ImageView(clockHostView.context).apply {
+            // The host lays its child out at the lock screen size, like a live clock.
+            scaleType = ImageView.ScaleType.FIT_XY
+            importantForAccessibility = View.IMPORTANT_FOR_ACCESSIBILITY_NO
+        }
+    }
+}
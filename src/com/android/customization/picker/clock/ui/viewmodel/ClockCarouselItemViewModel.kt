@@ -15,8 +15,15 @@
  */
 package com.android.customization.picker.clock.ui.viewmodel
 
+/**
+ * A clock of the carousel. Its content description is resolved whenever it's read, which is when
+ * the clock is populated into the carousel, as it's only known once the clock is created.
+ */
 class ClockCarouselItemViewModel(
     val clockId: String,
     val isSelected: Boolean,
-    val contentDescription: String,
-)
+    private val contentDescriptionProvider: () -> String,
+) {
+    val contentDescription: String
+        get() = contentDescriptionProvider()
+}
@@ -28,13 +28,12 @@ import com.android.wallpaper.R
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.Job
-import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.collectLatest
 import kotlinx.coroutines.flow.flatMapLatest
 import kotlinx.coroutines.flow.map
-import kotlinx.coroutines.flow.mapLatest
 import kotlinx.coroutines.flow.mapNotNull
 import kotlinx.coroutines.flow.stateIn
 import kotlinx.coroutines.launch
@@ -50,19 +49,21 @@ class ClockCarouselViewModel(
     private val resources: Resources,
     private val logger: ThemesUserEventLogger,
 ) : ViewModel() {
-    @OptIn(ExperimentalCoroutinesApi::class)
     val allClocks: StateFlow<List<ClockCarouselItemViewModel>> =
         interactor.allClocks
-            .mapLatest { allClocks ->
-                // Delay to avoid the case that the full list of clocks is not initiated.
-                delay(CLOCKS_EVENT_UPDATE_DELAY_MILLIS)
+            .map { allClocks ->
+                // Only the clock ids are needed here, the clocks are created when they're
+                // populated into the carousel.
                 allClocks.map {
-                    val contentDescription =
+                    ClockCarouselItemViewModel(it.clockId, it.isSelected) {
+                        // The registry only lists clock ids, descriptions come with the clocks'
+                        // configs, known once the clocks are created.
                         resources.getString(
                             R.string.select_clock_action_description,
-                            clockViewFactory.getController(it.clockId).config.description
+                            clockViewFactory.getConfig(it.clockId)?.description
+                                ?: resources.getString(R.string.clock_title),
                         )
-                    ClockCarouselItemViewModel(it.clockId, it.isSelected, contentDescription)
+                    }
                 }
             }
             .stateIn(viewModelScope, SharingStarted.Eagerly, emptyList())
@@ -130,6 +131,16 @@ class ClockCarouselViewModel(
             }
     }
 
+    init {
+        // Create the clocks the carousel can swipe to ahead of time, rather than mid-swipe.
+        viewModelScope.launch {
+            selectedIndex.collectLatest { index ->
+                val clockIds = allClocks.value.map { it.clockId }
+                clockViewFactory.prewarm(ClockViewFactory.getCarouselClockIds(clockIds, index))
+            }
+        }
+    }
+
     class Factory(
         private val interactor: ClockPickerInteractor,
         private val backgroundDispatcher: CoroutineDispatcher,
@@ -151,7 +162,6 @@ class ClockCarouselViewModel(
     }
 
     companion object {
-        const val CLOCKS_EVENT_UPDATE_DELAY_MILLIS: Long = 100
         const val CARD_COLOR_CHANGE_LUMINANCE_THRESHOLD_LIGHT_THEME: Float = 0.85f
         const val CARD_COLOR_CHANGE_LUMINANCE_THRESHOLD_DARK_THEME: Float = 0.03f
     }
@@ -17,6 +17,9 @@
 
 package com.android.customization.picker.grid.data.repository
 
+import android.graphics.Bitmap
+import androidx.annotation.ColorInt
+import androidx.annotation.VisibleForTesting
 import androidx.lifecycle.asFlow
 import com.android.customization.model.CustomizationManager
 import com.android.customization.model.CustomizationManager.Callback
@@ -26,12 +29,13 @@ import com.android.customization.picker.grid.shared.model.GridOptionItemModel
 import com.android.customization.picker.grid.shared.model.GridOptionItemsModel
 import kotlin.coroutines.resume
 import kotlinx.coroutines.CoroutineDispatcher
-import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableStateFlow
-import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
 import kotlinx.coroutines.flow.map
-import kotlinx.coroutines.flow.stateIn
 import kotlinx.coroutines.suspendCancellableCoroutine
 import kotlinx.coroutines.withContext
 
@@ -40,20 +44,45 @@ interface GridRepository {
     fun getOptionChanges(): Flow<Unit>
     suspend fun getOptions(): GridOptionItemsModel
     fun getSelectedOption(): GridOption?
-    fun applySelectedOption(callback: Callback)
+    /** Whether a grid is being applied, until the launcher took it. */
+    val isApplying: StateFlow<Boolean>
+    /**
+     * Applies the selected option in the background, then notifies [callback] from the calling
+     * context.
+     */
+    suspend fun applySelectedOption(callback: Callback)
     fun clearSelectedOption()
     fun isSelectedOptionApplied(): Boolean
+    /** Whether the selected option is the applied one, updated whenever either of them changes. */
+    val selectedOptionIsApplied: Flow<Boolean>
+    fun getPreviewSnapshot(
+        option: GridOption,
+        width: Int,
+        height: Int,
+        @ColorInt color: Int,
+    ): Bitmap
+    /** Draws the snapshots of the options next to [option] in the background. */
+    fun prefetchPreviewSnapshots(
+        option: GridOption,
+        width: Int,
+        height: Int,
+        @ColorInt color: Int,
+    )
 }
 
 class GridRepositoryImpl(
-    private val applicationScope: CoroutineScope,
     private val manager: GridOptionsManager,
     private val backgroundDispatcher: CoroutineDispatcher,
     private val isGridApplyButtonEnabled: Boolean,
 ) : GridRepository {
 
     override suspend fun isAvailable(): Boolean {
-        return withContext(backgroundDispatcher) { manager.isAvailable }
+        manager.knownAvailability?.let {
+            return it
+        }
+        return suspendCancellableCoroutine { continuation ->
+            manager.fetchAvailability { isAvailable -> continuation.resume(isAvailable) }
+        }
     }
 
     override fun getOptionChanges(): Flow<Unit> =
@@ -61,30 +90,35 @@ class GridRepositoryImpl(
 
     private val selectedOption = MutableStateFlow<GridOption?>(null)
 
-    private var appliedOption: GridOption? = null
+    /** The number of collectors of the selection, which option models only add while collected. */
+    @VisibleForTesting
+    val selectionSubscriptionCount: StateFlow<Int> = selectedOption.subscriptionCount
+
+    private val _isApplying = MutableStateFlow(false)
+    override val isApplying: StateFlow<Boolean> = _isApplying.asStateFlow()
+
+    private val appliedOption = MutableStateFlow<GridOption?>(null)
+
+    // The options the launcher last returned and the models built from them. The launcher's list
+    // is cached until its option change observer reports a change, so as long as it hands back the
+    // same list, the same models are served from memory. Options are loaded on the caller's thread
+    // when cached and on a background thread otherwise, so both are only accessed holding the lock.
+    private val loadedOptionsLock = Any()
+    private var loadedOptions: List<GridOption>? = null
+    private var loadedModel: GridOptionItemsModel.Loaded? = null
 
     override fun getSelectedOption() = selectedOption.value
 
     override suspend fun getOptions(): GridOptionItemsModel {
+        manager.cachedOptions?.let { options ->
+            return onOptionsLoaded(options)
+        }
         return withContext(backgroundDispatcher) {
             suspendCancellableCoroutine { continuation ->
                 manager.fetchOptions(
                     object : CustomizationManager.OptionsFetchedListener<GridOption> {
                         override fun onOptionsLoaded(options: MutableList<GridOption>?) {
-                            val optionsOrEmpty = options ?: emptyList()
-                            // After Apply Button is added, we will rely on onSelected() method
-                            // to update selectedOption.
-                            if (!isGridApplyButtonEnabled || selectedOption.value == null) {
-                                selectedOption.value = optionsOrEmpty.find { it.isActive(manager) }
-                            }
-                            if (isGridApplyButtonEnabled && appliedOption == null) {
-                                appliedOption = selectedOption.value
-                            }
-                            continuation.resume(
-                                GridOptionItemsModel.Loaded(
-                                    optionsOrEmpty.map { option -> toModel(option) }
-                                )
-                            )
+                            continuation.resume(onOptionsLoaded(options ?: emptyList()))
                         }
 
                         override fun onError(throwable: Throwable?) {
@@ -95,85 +129,146 @@ class GridRepositoryImpl(
                             )
                         }
                     },
-                    /* reload= */ true,
+                    /* reload= */ false,
                 )
             }
         }
     }
 
+    private fun onOptionsLoaded(options: List<GridOption>): GridOptionItemsModel.Loaded =
+        synchronized(loadedOptionsLock) { buildModel(options) }
+
+    private fun buildModel(options: List<GridOption>): GridOptionItemsModel.Loaded {
+        // The selection is updated on every load, even when the models are reused, as it may have
+        // been cleared since they were built.
+        updateSelection(options)
+        loadedModel?.let { model ->
+            if (options === loadedOptions) {
+                return model
+            }
+        }
+        return GridOptionItemsModel.Loaded(options.map { option -> toModel(option) }).also {
+            loadedOptions = options
+            loadedModel = it
+        }
+    }
+
+    private fun updateSelection(options: List<GridOption>) {
+        val activeOption = options.find { it.isActive(manager) }
+        // After Apply Button is added, we will rely on onSelected() method to update
+        // selectedOption, so a selection is kept across loads until it's cleared. It's looked up in
+        // the loaded options as the launcher hands back new ones whenever its grids change.
+        val selected = selectedOption.value
+        selectedOption.value =
+            if (isGridApplyButtonEnabled && selected != null) {
+                options.find { it.name == selected.name } ?: activeOption
+            } else {
+                activeOption
+            }
+        if (isGridApplyButtonEnabled && appliedOption.value == null) {
+            appliedOption.value = activeOption
+        }
+    }
+
     private fun toModel(option: GridOption): GridOptionItemModel {
         return GridOptionItemModel(
             name = option.title,
             rows = option.rows,
             cols = option.cols,
-            isSelected =
-                selectedOption
-                    .map { it.key() }
-                    .map { selectedOptionKey -> option.key() == selectedOptionKey }
-                    .stateIn(
-                        scope = applicationScope,
-                        started = SharingStarted.Eagerly,
-                        initialValue = false,
-                    ),
+            // Derived from the selection only while collected, so that reloads don't leave
+            // coroutines behind mapping it for options that aren't shown anymore.
+            isSelected = selectedOption.map { it.key() == option.key() }.distinctUntilChanged(),
             onSelected = { onSelected(option) },
         )
     }
 
     private suspend fun onSelected(option: GridOption) {
-        withContext(backgroundDispatcher) {
-            suspendCancellableCoroutine { continuation ->
-                if (isGridApplyButtonEnabled) {
-                    selectedOption.value?.setIsCurrent(false)
-                    selectedOption.value = option
-                    selectedOption.value?.setIsCurrent(true)
-                    manager.preview(option)
-                    continuation.resume(true)
-                } else {
-                    manager.apply(
-                        option,
-                        object : CustomizationManager.Callback {
-                            override fun onSuccess() {
-                                continuation.resume(true)
-                            }
-
-                            override fun onError(throwable: Throwable?) {
-                                continuation.resume(false)
-                            }
-                        },
-                    )
-                }
+        if (isGridApplyButtonEnabled) {
+            withContext(backgroundDispatcher) {
+                // The options are shared with the launcher's cached list, so the selection is only
+                // kept here rather than marked on the options.
+                selectedOption.value = option
+                manager.preview(option)
             }
+        } else {
+            apply(option)
         }
     }
 
-    override fun applySelectedOption(callback: Callback) {
+    override suspend fun applySelectedOption(callback: Callback) {
         val option = getSelectedOption()
-        manager.apply(
-            option,
+        val error = apply(option)
+        if (error == null) {
             if (isGridApplyButtonEnabled) {
-                object : Callback {
-                    override fun onSuccess() {
-                        callback.onSuccess()
-                        appliedOption = option
-                    }
-
-                    override fun onError(throwable: Throwable?) {
-                        callback.onError(throwable)
-                    }
-                }
-            } else callback
-        )
+                appliedOption.value = option
+            }
+            callback.onSuccess()
+        } else {
+            callback.onError(error.throwable)
+        }
     }
 
+    /**
+     * Applies [option] on the background dispatcher, as the launcher reloads its workspace before
+     * returning, and returns the error if it failed.
+     */
+    private suspend fun apply(option: GridOption?): ApplyError? {
+        _isApplying.value = true
+        try {
+            return withContext(backgroundDispatcher) {
+                var error: ApplyError? = ApplyError(throwable = null)
+                manager.apply(
+                    option,
+                    object : Callback {
+                        override fun onSuccess() {
+                            error = null
+                        }
+
+                        override fun onError(throwable: Throwable?) {
+                            error = ApplyError(throwable)
+                        }
+                    },
+                )
+                error
+            }
+        } finally {
+            _isApplying.value = false
+        }
+    }
+
+    private class ApplyError(val throwable: Throwable?)
+
     override fun clearSelectedOption() {
         if (!isGridApplyButtonEnabled) {
             return
         }
-        selectedOption.value?.setIsCurrent(false)
         selectedOption.value = null
     }
 
-    override fun isSelectedOptionApplied() = selectedOption.value?.name == appliedOption?.name
+    override fun isSelectedOptionApplied() =
+        selectedOption.value?.name == appliedOption.value?.name
+
+    override val selectedOptionIsApplied: Flow<Boolean> =
+        combine(selectedOption, appliedOption) { selected, applied ->
+                selected?.name == applied?.name
+            }
+            .distinctUntilChanged()
+
+    override fun getPreviewSnapshot(
+        option: GridOption,
+        width: Int,
+        height: Int,
+        @ColorInt color: Int,
+    ): Bitmap = manager.getPreviewSnapshot(option, width, height, color)
+
+    override fun prefetchPreviewSnapshots(
+        option: GridOption,
+        width: Int,
+        height: Int,
+        @ColorInt color: Int,
+    ) {
+        manager.prefetchPreviewSnapshots(option, width, height, color)
+    }
 
     private fun GridOption?.key(): String? {
         return if (this != null) "${cols}x${rows}" else null
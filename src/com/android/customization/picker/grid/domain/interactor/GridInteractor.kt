@@ -17,6 +17,8 @@
 
 package com.android.customization.picker.grid.domain.interactor
 
+import android.graphics.Bitmap
+import androidx.annotation.ColorInt
 import com.android.customization.model.CustomizationManager
 import com.android.customization.model.grid.GridOption
 import com.android.customization.picker.grid.data.repository.GridRepository
@@ -26,7 +28,9 @@ import javax.inject.Provider
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.emptyFlow
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.flow.flatMapLatest
 import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.flow.map
@@ -71,7 +75,7 @@ class GridInteractor(
     suspend fun getSelectedOption(): GridOptionItemModel? {
         return (repository.getOptions() as? GridOptionItemsModel.Loaded)?.options?.firstOrNull {
             optionItem ->
-            optionItem.isSelected.value
+            optionItem.isSelected.first()
         }
     }
 
@@ -81,10 +85,34 @@ class GridInteractor(
 
     fun isSelectedOptionApplied() = repository.isSelectedOptionApplied()
 
-    fun applySelectedOption(callback: CustomizationManager.Callback) {
+    /** Whether the selected option is the applied one, updated whenever either of them changes. */
+    val selectedOptionIsApplied: Flow<Boolean> = repository.selectedOptionIsApplied
+
+    /** Whether a grid is being applied, until the launcher took it. */
+    val isApplying: StateFlow<Boolean> = repository.isApplying
+
+    suspend fun applySelectedOption(callback: CustomizationManager.Callback) {
         repository.applySelectedOption(callback)
     }
 
+    /**
+     * Returns the snapshot of the workspace preview with the selected option, of the given size and
+     * color, or null if no option is selected.
+     */
+    fun getSelectedOptionPreviewSnapshot(width: Int, height: Int, @ColorInt color: Int): Bitmap? {
+        val option = repository.getSelectedOption() ?: return null
+        return repository.getPreviewSnapshot(option, width, height, color)
+    }
+
+    /**
+     * Draws, in the background, the snapshots of the options next to the selected one, of the
+     * given size and color.
+     */
+    fun prefetchPreviewSnapshots(width: Int, height: Int, @ColorInt color: Int) {
+        val option = repository.getSelectedOption() ?: return
+        repository.prefetchPreviewSnapshots(option, width, height, color)
+    }
+
     private suspend fun reload(): GridOptionItemsModel {
         val model = repository.getOptions()
         return if (model is GridOptionItemsModel.Loaded) {
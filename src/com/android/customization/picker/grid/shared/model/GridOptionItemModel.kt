@@ -17,12 +17,12 @@
 
 package com.android.customization.picker.grid.shared.model
 
-import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.Flow
 
 data class GridOptionItemModel(
     val name: String,
     val cols: Int,
     val rows: Int,
-    val isSelected: StateFlow<Boolean>,
+    val isSelected: Flow<Boolean>,
     val onSelected: suspend () -> Unit,
 )
@@ -20,6 +20,7 @@ package com.android.customization.picker.grid.ui.binder
 import android.view.View
 import android.widget.Button
 import android.widget.ImageView
+import androidx.core.view.isVisible
 import androidx.lifecycle.Lifecycle
 import androidx.lifecycle.LifecycleOwner
 import androidx.lifecycle.lifecycleScope
@@ -85,6 +86,18 @@ object GridScreenBinder {
                         onOptionsChanged()
                     }
                 }
+
+                if (isGridApplyButtonEnabled) {
+                    launch {
+                        val applyButton: Button = view.requireViewById(R.id.apply_button)
+                        viewModel.isApplyButtonEnabled.collect { applyButton.isEnabled = it }
+                    }
+                }
+
+                launch {
+                    val applyProgress: View = view.requireViewById(R.id.apply_progress)
+                    viewModel.isApplyInProgress.collect { applyProgress.isVisible = it }
+                }
             }
         }
     }
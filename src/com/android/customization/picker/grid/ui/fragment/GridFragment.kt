@@ -20,13 +20,16 @@ package com.android.customization.picker.grid.ui.fragment
 import android.os.Bundle
 import android.util.Log
 import android.view.LayoutInflater
+import android.view.SurfaceHolder
+import android.view.SurfaceView
 import android.view.View
 import android.view.ViewGroup
-import android.widget.Button
+import android.widget.ImageView
 import android.widget.Toast
 import androidx.core.content.ContextCompat
 import androidx.core.view.isVisible
 import androidx.lifecycle.ViewModelProvider
+import androidx.lifecycle.lifecycleScope
 import androidx.transition.Transition
 import androidx.transition.doOnStart
 import com.android.customization.model.CustomizationManager.Callback
@@ -46,14 +49,21 @@ import com.android.wallpaper.picker.customization.ui.viewmodel.ScreenPreviewView
 import com.android.wallpaper.util.PreviewUtils
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.suspendCancellableCoroutine
 
 private val TAG = GridFragment::class.java.simpleName
+// How long the preview snapshot is held once the new preview's surface is ready, which covers the
+// launcher reloading its workspace.
+private const val PREVIEW_SNAPSHOT_HOLD_MILLIS = 500L
 
 @OptIn(ExperimentalCoroutinesApi::class)
 class GridFragment : AppbarFragment() {
 
     private lateinit var gridInteractor: GridInteractor
+    // Incremented whenever a preview snapshot is shown, so that the fade out of a previous one
+    // doesn't hide it.
+    private var previewSnapshotGeneration = 0
 
     override fun onCreateView(
         inflater: LayoutInflater,
@@ -93,6 +103,7 @@ class GridFragment : AppbarFragment() {
             lifecycleOwner = this,
             backgroundDispatcher = Dispatchers.IO,
             onOptionsChanged = {
+                showPreviewSnapshot(view)
                 screenPreviewBinding.destroy()
                 screenPreviewBinding =
                     bindScreenPreview(
@@ -101,40 +112,38 @@ class GridFragment : AppbarFragment() {
                         injector.getWallpaperInteractor(requireContext()),
                         gridInteractor,
                     )
-                if (isGridApplyButtonEnabled) {
-                    val applyButton: Button = view.requireViewById(R.id.apply_button)
-                    applyButton.isEnabled = !gridInteractor.isSelectedOptionApplied()
-                }
+                hidePreviewSnapshotWhenReady(view)
+                prefetchPreviewSnapshots(view)
             },
             isGridApplyButtonEnabled = isGridApplyButtonEnabled,
             onOptionApplied = {
-                gridInteractor.applySelectedOption(
-                    object : Callback {
-                        override fun onSuccess() {
-                            Toast.makeText(
-                                    context,
+                viewLifecycleOwner.lifecycleScope.launch {
+                    gridInteractor.applySelectedOption(
+                        object : Callback {
+                            override fun onSuccess() {
+                                Toast.makeText(
+                                        context,
+                                        getString(
+                                            R.string.toast_of_changing_grid,
+                                            gridInteractor.getSelectOptionNonSuspend()?.title
+                                        ),
+                                        Toast.LENGTH_SHORT
+                                    )
+                                    .show()
+                            }
+
+                            override fun onError(throwable: Throwable?) {
+                                val errorMsg =
                                     getString(
-                                        R.string.toast_of_changing_grid,
+                                        R.string.toast_of_failure_to_change_grid,
                                         gridInteractor.getSelectOptionNonSuspend()?.title
-                                    ),
-                                    Toast.LENGTH_SHORT
-                                )
-                                .show()
-                            val applyButton: Button = view.requireViewById(R.id.apply_button)
-                            applyButton.isEnabled = false
-                        }
-
-                        override fun onError(throwable: Throwable?) {
-                            val errorMsg =
-                                getString(
-                                    R.string.toast_of_failure_to_change_grid,
-                                    gridInteractor.getSelectOptionNonSuspend()?.title
-                                )
-                            Toast.makeText(context, errorMsg, Toast.LENGTH_SHORT).show()
-                            Log.e(TAG, errorMsg, throwable)
+                                    )
+                                Toast.makeText(context, errorMsg, Toast.LENGTH_SHORT).show()
+                                Log.e(TAG, errorMsg, throwable)
+                            }
                         }
-                    }
-                )
+                    )
+                }
             }
         )
 
@@ -145,6 +154,90 @@ class GridFragment : AppbarFragment() {
         return view
     }
 
+    /**
+     * Covers the preview with the snapshot of the selected grid while the launcher reloads its
+     * workspace for the live preview.
+     */
+    private fun showPreviewSnapshot(view: View) {
+        val snapshotView: ImageView = view.requireViewById(R.id.preview_snapshot)
+        val surfaceView: SurfaceView = view.requireViewById(R.id.workspace_surface)
+        if (surfaceView.width == 0 || surfaceView.height == 0) {
+            return
+        }
+        val snapshot =
+            gridInteractor.getSelectedOptionPreviewSnapshot(
+                surfaceView.width,
+                surfaceView.height,
+                ContextCompat.getColor(requireContext(), R.color.system_on_surface),
+            ) ?: return
+        previewSnapshotGeneration++
+        snapshotView.animate().cancel()
+        snapshotView.setImageBitmap(snapshot)
+        snapshotView.alpha = 1f
+        snapshotView.isVisible = true
+    }
+
+    /**
+     * Fades the preview snapshot out once the launcher has had the time to draw the new preview.
+     *
+     * The launcher draws the preview in a surface of its own, embedded in the workspace surface,
+     * and nothing tells the picker when it drew in there. So the snapshot is held for
+     * [PREVIEW_SNAPSHOT_HOLD_MILLIS] from when the workspace surface is ready for the new preview:
+     * when it's recreated if the previous one was destroyed, or right away if it was kept.
+     */
+    private fun hidePreviewSnapshotWhenReady(view: View) {
+        val snapshotView: ImageView = view.requireViewById(R.id.preview_snapshot)
+        if (!snapshotView.isVisible) {
+            return
+        }
+        val generation = previewSnapshotGeneration
+        val fadeOut = Runnable {
+            if (generation != previewSnapshotGeneration) {
+                return@Runnable
+            }
+            snapshotView
+                .animate()
+                .alpha(0f)
+                .withEndAction { snapshotView.isVisible = false }
+                .start()
+        }
+        val holder = view.requireViewById<SurfaceView>(R.id.workspace_surface).holder
+        if (holder.surface.isValid) {
+            snapshotView.postDelayed(fadeOut, PREVIEW_SNAPSHOT_HOLD_MILLIS)
+            return
+        }
+        holder.addCallback(
+            object : SurfaceHolder.Callback {
+                override fun surfaceCreated(holder: SurfaceHolder) = Unit
+
+                override fun surfaceChanged(
+                    holder: SurfaceHolder,
+                    format: Int,
+                    width: Int,
+                    height: Int,
+                ) {
+                    holder.removeCallback(this)
+                    snapshotView.postDelayed(fadeOut, PREVIEW_SNAPSHOT_HOLD_MILLIS)
+                }
+
+                override fun surfaceDestroyed(holder: SurfaceHolder) = Unit
+            }
+        )
+    }
+
+    /** Draws the snapshots of the grids next to the selected one, for the next switches. */
+    private fun prefetchPreviewSnapshots(view: View) {
+        val surfaceView: SurfaceView = view.requireViewById(R.id.workspace_surface)
+        if (surfaceView.width == 0 || surfaceView.height == 0) {
+            return
+        }
+        gridInteractor.prefetchPreviewSnapshots(
+            surfaceView.width,
+            surfaceView.height,
+            ContextCompat.getColor(requireContext(), R.color.system_on_surface),
+        )
+    }
+
     override fun getDefaultTitle(): CharSequence {
         return getString(R.string.grid_title)
     }
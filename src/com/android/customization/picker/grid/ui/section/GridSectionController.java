@@ -47,6 +47,8 @@ public class GridSectionController implements CustomizationSectionController<Gri
     private final LifecycleOwner mLifecycleOwner;
     private TextView mSectionDescription;
     private View mSectionTile;
+    private boolean mIsObservingOptionChanges;
+    private boolean mIsReleased;
 
     public GridSectionController(
             GridOptionsManager gridOptionsManager,
@@ -59,9 +61,14 @@ public class GridSectionController implements CustomizationSectionController<Gri
         mOptionChangeObserver = o -> updateUi(/* reload= */ true);
     }
 
+    /**
+     * Returns false only if the launcher is already known not to support grid options. Otherwise
+     * the section is created hidden and only shown once the launcher confirms, so that the UI
+     * thread never waits for the launcher.
+     */
     @Override
     public boolean isAvailable(Context context) {
-        return mGridOptionsManager.isAvailable();
+        return !Boolean.FALSE.equals(mGridOptionsManager.getKnownAvailability());
     }
 
     @Override
@@ -71,11 +78,17 @@ public class GridSectionController implements CustomizationSectionController<Gri
         mSectionDescription = gridSectionView.findViewById(R.id.grid_section_description);
         mSectionTile = gridSectionView.findViewById(R.id.grid_section_tile);
 
-        // Fetch grid options to show currently set grid.
-        updateUi(/* The result is getting when calling isAvailable(), so reload= */ false);
-        mGridOptionsManager.getOptionChangeObservable(/* handler= */ null).observe(
-                mLifecycleOwner,
-                mOptionChangeObserver);
+        if (Boolean.TRUE.equals(mGridOptionsManager.getKnownAvailability())) {
+            onAvailable();
+        } else {
+            gridSectionView.setVisibility(View.GONE);
+            mGridOptionsManager.fetchAvailability(isAvailable -> {
+                if (isAvailable && !mIsReleased) {
+                    gridSectionView.setVisibility(View.VISIBLE);
+                    onAvailable();
+                }
+            });
+        }
 
         gridSectionView.setOnClickListener(
                 v -> {
@@ -88,10 +101,12 @@ public class GridSectionController implements CustomizationSectionController<Gri
 
     @Override
     public void release() {
-        if (mGridOptionsManager.isAvailable()) {
+        mIsReleased = true;
+        if (mIsObservingOptionChanges) {
             mGridOptionsManager.getOptionChangeObservable(/* handler= */ null).removeObserver(
                     mOptionChangeObserver
             );
+            mIsObservingOptionChanges = false;
         }
     }
 
@@ -100,6 +115,15 @@ public class GridSectionController implements CustomizationSectionController<Gri
         CustomizationSectionController.super.onTransitionOut();
     }
 
+    private void onAvailable() {
+        // Fetch grid options to show currently set grid.
+        updateUi(/* The result is getting when probing the availability, so reload= */ false);
+        mGridOptionsManager.getOptionChangeObservable(/* handler= */ null).observe(
+                mLifecycleOwner,
+                mOptionChangeObserver);
+        mIsObservingOptionChanges = true;
+    }
+
     private void updateUi(final boolean reload) {
         mGridOptionsManager.fetchOptions(
                 new OptionsFetchedListener<GridOption>() {
@@ -30,8 +30,12 @@ import com.android.wallpaper.picker.common.text.ui.viewmodel.Text
 import com.android.wallpaper.picker.option.ui.viewmodel.OptionItemViewModel
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.stateIn
 import kotlinx.coroutines.launch
 
 class GridScreenViewModel(
@@ -45,7 +49,21 @@ class GridScreenViewModel(
     val optionItems: Flow<List<OptionItemViewModel<GridIconViewModel>>> =
         interactor.options.map { model -> toViewModel(model) }
 
-    private fun toViewModel(
+    /**
+     * Whether the apply button can be used: not while a grid is being applied, nor when the
+     * selected grid is already applied.
+     */
+    val isApplyButtonEnabled: Flow<Boolean> =
+        combine(interactor.isApplying, interactor.selectedOptionIsApplied) {
+            isApplying,
+            isSelectedOptionApplied ->
+            !isApplying && !isSelectedOptionApplied
+        }
+
+    /** Whether to show that a grid is being applied, while the launcher reloads its workspace. */
+    val isApplyInProgress: Flow<Boolean> = interactor.isApplying
+
+    private suspend fun toViewModel(
         model: GridOptionItemsModel,
     ): List<OptionItemViewModel<GridIconViewModel>> {
         val iconShapePath =
@@ -62,6 +80,14 @@ class GridScreenViewModel(
             is GridOptionItemsModel.Loaded ->
                 model.options.map { option ->
                     val text = Text.Loaded(option.name)
+                    // Only mapped from the selection while the item is bound, so that the items of
+                    // previous loads stop following it.
+                    val isSelectedFlow =
+                        option.isSelected.stateIn(
+                            scope = viewModelScope,
+                            started = SharingStarted.WhileSubscribed(),
+                            initialValue = option.isSelected.first(),
+                        )
                     OptionItemViewModel<GridIconViewModel>(
                         key =
                             MutableStateFlow("${option.cols}x${option.rows}") as StateFlow<String>,
@@ -72,9 +98,9 @@ class GridScreenViewModel(
                                 path = iconShapePath,
                             ),
                         text = text,
-                        isSelected = option.isSelected,
+                        isSelected = isSelectedFlow,
                         onClicked =
-                            option.isSelected.map { isSelected ->
+                            isSelectedFlow.map { isSelected ->
                                 if (!isSelected) {
                                     { viewModelScope.launch { option.onSelected() } }
                                 } else {
@@ -23,6 +23,7 @@ import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 
+import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -30,6 +31,8 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 
 /**
  * This is basically a copy of {@link AdaptiveIconDrawable} but which allows a custom path for
@@ -39,6 +42,25 @@ import java.io.IOException;
  */
 public class DynamicAdaptiveIconDrawable extends Drawable implements Drawable.Callback {
 
+    /**
+     * How the masked layers are drawn.
+     */
+    @IntDef({RenderMode.BITMAP_SHADER, RenderMode.CLIP_PATH})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface RenderMode {
+        /**
+         * Layers are rendered into a software bitmap which is then drawn through the mask with a
+         * {@link BitmapShader}. Edges are anti-aliased, but any layer invalidation re-rasterizes
+         * the whole icon.
+         */
+        int BITMAP_SHADER = 0;
+        /**
+         * The canvas is clipped with the mask and layers are drawn into it directly, so drawing
+         * stays on the hardware accelerated pipeline.
+         */
+        int CLIP_PATH = 1;
+    }
+
     /**
      * Mask path is defined inside device configuration in following dimension: [100 x 100]
      */
@@ -90,12 +112,14 @@ public class DynamicAdaptiveIconDrawable extends Drawable implements Drawable.Ca
     private final Canvas mCanvas;
     private Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.DITHER_FLAG |
             Paint.FILTER_BITMAP_FLAG);
+    @RenderMode
+    private final int mRenderMode;
 
     /**
      * Constructor used for xml inflation.
      */
     DynamicAdaptiveIconDrawable() {
-        this((LayerState) null, null, null);
+        this((LayerState) null, null, null, RenderMode.BITMAP_SHADER);
     }
 
     /**
@@ -103,8 +127,9 @@ public class DynamicAdaptiveIconDrawable extends Drawable implements Drawable.Ca
      * constructors to set the state and initialize local properties.
      */
     private DynamicAdaptiveIconDrawable(@Nullable LayerState state, @Nullable Resources res,
-            Path iconMask) {
+            Path iconMask, @RenderMode int renderMode) {
         mLayerState = createConstantState(state, res);
+        mRenderMode = renderMode;
 
         mOriginalMask = iconMask;
         mMask = new Path(iconMask);
@@ -136,7 +161,20 @@ public class DynamicAdaptiveIconDrawable extends Drawable implements Drawable.Ca
      */
     public DynamicAdaptiveIconDrawable(Drawable backgroundDrawable,
             Drawable foregroundDrawable, Path iconMask) {
-        this((LayerState)null, null, iconMask);
+        this(backgroundDrawable, foregroundDrawable, iconMask, RenderMode.BITMAP_SHADER);
+    }
+
+    /**
+     * Constructor used to dynamically create this drawable with the given {@link RenderMode}.
+     *
+     * @param backgroundDrawable drawable that should be rendered in the background
+     * @param foregroundDrawable drawable that should be rendered in the foreground
+     * @param iconMask path to use to mask the icon
+     * @param renderMode how the masked layers should be drawn
+     */
+    public DynamicAdaptiveIconDrawable(Drawable backgroundDrawable,
+            Drawable foregroundDrawable, Path iconMask, @RenderMode int renderMode) {
+        this((LayerState)null, null, iconMask, renderMode);
         if (backgroundDrawable != null) {
             addLayer(BACKGROUND_ID, createChildDrawable(backgroundDrawable));
         }
@@ -256,9 +294,9 @@ public class DynamicAdaptiveIconDrawable extends Drawable implements Drawable.Ca
         mMaskMatrix.postTranslate(b.left, b.top);
         mOriginalMask.transform(mMaskMatrix, mMask);
 
-        if (mLayersBitmap == null || mLayersBitmap.getWidth() != b.width()
-                || mLayersBitmap.getHeight() != b.height()) {
-            mLayersBitmap = Bitmap.createBitmap(b.width(), b.height(), Bitmap.Config.ARGB_8888);
+        if (mLayersBitmap != null && (mLayersBitmap.getWidth() != b.width()
+                || mLayersBitmap.getHeight() != b.height())) {
+            releaseLayersBitmap();
         }
 
         mPaint.setShader(null);
@@ -266,11 +304,35 @@ public class DynamicAdaptiveIconDrawable extends Drawable implements Drawable.Ca
         mLayersShader = null;
     }
 
+    /**
+     * Returns the bitmap the layers are rendered into to the shared {@link LayerBitmapPool}. It's
+     * acquired again the next time this drawable is drawn.
+     */
+    public void releaseLayersBitmap() {
+        if (mLayersBitmap == null) {
+            return;
+        }
+        mCanvas.setBitmap(null);
+        mPaint.setShader(null);
+        mLayersShader = null;
+        LayerBitmapPool.getInstance().release(mLayersBitmap);
+        mLayersBitmap = null;
+    }
+
     @Override
     public void draw(Canvas canvas) {
-        if (mLayersBitmap == null) {
+        if (mRenderMode == RenderMode.CLIP_PATH) {
+            drawClipped(canvas);
             return;
         }
+        if (mLayersBitmap == null) {
+            Rect bounds = getBounds();
+            if (bounds.isEmpty()) {
+                return;
+            }
+            mLayersBitmap = LayerBitmapPool.getInstance().acquire(bounds.width(), bounds.height());
+            mLayersShader = null;
+        }
         if (mLayersShader == null) {
             mCanvas.setBitmap(mLayersBitmap);
             mCanvas.drawColor(Color.BLACK);
@@ -294,6 +356,30 @@ public class DynamicAdaptiveIconDrawable extends Drawable implements Drawable.Ca
         }
     }
 
+    private void drawClipped(Canvas canvas) {
+        Rect bounds = getBounds();
+        if (bounds.isEmpty()) {
+            return;
+        }
+        int saveCount = mPaint.getAlpha() < 255
+                ? canvas.saveLayerAlpha(bounds.left, bounds.top, bounds.right, bounds.bottom,
+                        mPaint.getAlpha())
+                : canvas.save();
+        canvas.translate(bounds.left, bounds.top);
+        canvas.clipPath(mMaskScaleOnly);
+        canvas.drawColor(Color.BLACK);
+        for (int i = 0; i < mLayerState.N_CHILDREN; i++) {
+            if (mLayerState.mChildren[i] == null) {
+                continue;
+            }
+            final Drawable dr = mLayerState.mChildren[i].mDrawable;
+            if (dr != null) {
+                dr.draw(canvas);
+            }
+        }
+        canvas.restoreToCount(saveCount);
+    }
+
     @Override
     public void invalidateSelf() {
         mLayersShader = null;
@@ -502,6 +588,10 @@ public class DynamicAdaptiveIconDrawable extends Drawable implements Drawable.Ca
     @Override
     public boolean setVisible(boolean visible, boolean restart) {
         final boolean changed = super.setVisible(visible, restart);
+        if (!visible) {
+            // Views hide their drawables when detached, no need to keep the bitmap until then.
+            releaseLayersBitmap();
+        }
         final ChildDrawable[] array = mLayerState.mChildren;
 
         for (int i = 0; i < mLayerState.N_CHILDREN; i++) {
@@ -843,7 +933,7 @@ public class DynamicAdaptiveIconDrawable extends Drawable implements Drawable.Ca
         @Override
         public Drawable newDrawable() {
             return new DynamicAdaptiveIconDrawable(mOwner.getBackground(), mOwner.getForeground(),
-                    mOwner.mOriginalMask);
+                    mOwner.mOriginalMask, mOwner.mRenderMode);
         }
 
         @Override
@@ -9,8 +9,6 @@ import android.graphics.PixelFormat;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 
-import androidx.core.graphics.PathParser;
-
 /**
  * Drawable that draws a grid rows x cols of icon shapes adjusting their size to fit within its
  * bounds.
@@ -23,8 +21,11 @@ public class GridTileDrawable extends Drawable {
     private final int mCols;
     private final int mRows;
     private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    // Shared with every other user of the same path data, only ever used as a transform source.
     private final Path mShapePath;
     private final Path mTransformedPath;
+    // All the cells' shapes, already offset to their position in the grid.
+    private final Path mGridPath = new Path();
     private final Matrix mScaleMatrix;
     private float mCellSize = -1f;
 
@@ -32,7 +33,7 @@ public class GridTileDrawable extends Drawable {
         mCols = cols;
         mRows = rows;
 
-        mShapePath = PathParser.createPathFromPathData(path);
+        mShapePath = PathDataCache.get(path);
         mTransformedPath = new Path(mShapePath);
         mScaleMatrix = new Matrix();
     }
@@ -46,24 +47,23 @@ public class GridTileDrawable extends Drawable {
         float scaleFactor = (mCellSize - 2 * SPACE_BETWEEN_ICONS) / PATH_SIZE;
         mScaleMatrix.setScale(scaleFactor, scaleFactor);
         mShapePath.transform(mScaleMatrix, mTransformedPath);
-    }
-
-    @Override
-    public void draw(Canvas canvas) {
-        double size = getBounds().width();
 
+        double size = bounds.width();
+        mGridPath.reset();
         for (int r = 0; r < mRows; r++) {
             for (int c = 0; c < mCols; c++) {
-                int saveCount = canvas.save();
                 float y = (float) ((r * size / mRows) + SPACE_BETWEEN_ICONS);
                 float x = (float) ((c * size / mCols) + SPACE_BETWEEN_ICONS);
-                canvas.translate(x, y);
-                canvas.drawPath(mTransformedPath, mPaint);
-                canvas.restoreToCount(saveCount);
+                mGridPath.addPath(mTransformedPath, x, y);
             }
         }
     }
 
+    @Override
+    public void draw(Canvas canvas) {
+        canvas.drawPath(mGridPath, mPaint);
+    }
+
     @Override
     public void setAlpha(int alpha) {
         mPaint.setAlpha(alpha);
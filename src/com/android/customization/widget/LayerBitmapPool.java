@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.widget;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Pool of the ARGB_8888 bitmaps {@link DynamicAdaptiveIconDrawable} renders its layers into,
+ * bucketed by size. Icons in the same picker are almost always the same size, so drawables that
+ * get detached hand their bitmap back here for the next one to reuse instead of allocating.
+ *
+ * <p>Only attached drawables hold a bitmap, and at most {@link #MAX_POOLED_BYTES} are kept around
+ * once released, so the footprint doesn't grow with the number of shape options.
+ */
+final class LayerBitmapPool {
+
+    private static final int MAX_POOLED_BYTES = 4 * 1024 * 1024;
+
+    private static final LayerBitmapPool sInstance = new LayerBitmapPool(MAX_POOLED_BYTES);
+
+    private final int mMaxPooledBytes;
+    // Released bitmaps, keyed by their size.
+    private final Map<Long, ArrayDeque<Bitmap>> mBuckets = new HashMap<>();
+    // Bytes held by the released bitmaps waiting to be reused.
+    private long mPooledBytes;
+
+    static LayerBitmapPool getInstance() {
+        return sInstance;
+    }
+
+    LayerBitmapPool(int maxPooledBytes) {
+        mMaxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * Returns a bitmap of the given size, reusing a released one when possible. Its content is
+     * undefined, callers are expected to fully draw over it.
+     */
+    synchronized Bitmap acquire(int width, int height) {
+        ArrayDeque<Bitmap> bucket = mBuckets.get(getKey(width, height));
+        Bitmap bitmap = bucket != null ? bucket.pollFirst() : null;
+        if (bitmap != null) {
+            mPooledBytes -= bitmap.getAllocationByteCount();
+        } else {
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Gives a bitmap obtained from {@link #acquire(int, int)} back to the pool. The caller must not
+     * use it anymore.
+     */
+    synchronized void release(Bitmap bitmap) {
+        int size = bitmap.getAllocationByteCount();
+        if (bitmap.isRecycled() || size > mMaxPooledBytes) {
+            return;
+        }
+        mBuckets.computeIfAbsent(getKey(bitmap.getWidth(), bitmap.getHeight()),
+                key -> new ArrayDeque<>()).addLast(bitmap);
+        mPooledBytes += size;
+        trimTo(mMaxPooledBytes);
+    }
+
+    /**
+     * Drops pooled bitmaps until no more than {@code maxBytes} are kept. Bitmaps currently in use
+     * are not affected.
+     */
+    synchronized void trimTo(long maxBytes) {
+        Iterator<ArrayDeque<Bitmap>> buckets = mBuckets.values().iterator();
+        while (mPooledBytes > maxBytes && buckets.hasNext()) {
+            ArrayDeque<Bitmap> bucket = buckets.next();
+            while (mPooledBytes > maxBytes && !bucket.isEmpty()) {
+                mPooledBytes -= bucket.pollFirst().getAllocationByteCount();
+            }
+            if (bucket.isEmpty()) {
+                buckets.remove();
+            }
+        }
+    }
+
+    private static long getKey(int width, int height) {
+        return ((long) width << 32) | (height & 0xffffffffL);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.widget;
+
+import android.graphics.Path;
+
+import androidx.core.graphics.PathParser;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of {@link Path}s parsed from path data strings, such as the
+ * config_icon_mask of the shape overlays and of the launcher grid options. A handful of distinct
+ * masks are used by the picker, each one is only parsed once per process.
+ *
+ * <p>The returned paths are shared and must be treated as immutable: transform them into a path
+ * you own with {@link Path#transform(android.graphics.Matrix, Path)}, or take a
+ * {@link #copy(String)} if you need to modify one.
+ */
+public final class PathDataCache {
+
+    private static final Map<String, Path> sPaths = new ConcurrentHashMap<>();
+
+    private PathDataCache() {}
+
+    /**
+     * Returns the shared, read-only path for the given path data.
+     */
+    public static Path get(String pathData) {
+        return sPaths.computeIfAbsent(pathData, PathParser::createPathFromPathData);
+    }
+
+    /**
+     * Returns a new path, which the caller is free to modify, for the given path data.
+     */
+    public static Path copy(String pathData) {
+        return new Path(get(pathData));
+    }
+}
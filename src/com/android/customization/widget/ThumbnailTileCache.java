@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.widget;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources.Theme;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+import android.util.SparseIntArray;
+
+import androidx.annotation.AttrRes;
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide cache of rasterized option thumbnails. Each tile is drawn into a bitmap once per
+ * key (which callers build from the option, size and the colors it's drawn with) and every later
+ * bind shows that bitmap directly, so scrolling through the options doesn't build any drawable. The
+ * cache is bounded by the bitmaps' byte size and emptied under memory pressure.
+ */
+public class ThumbnailTileCache implements ComponentCallbacks2 {
+
+    // Fraction of the heap that cached tiles are allowed to use.
+    private static final int HEAP_FRACTION = 32;
+
+    private static ThumbnailTileCache sInstance;
+
+    private final LruCache<String, Bitmap> mTiles;
+    // Theme attribute colors resolved so far, per theme.
+    private final Map<Theme, SparseIntArray> mThemeColors = new WeakHashMap<>();
+
+    public static synchronized ThumbnailTileCache getInstance(Context context) {
+        if (sInstance == null) {
+            Context applicationContext = context.getApplicationContext();
+            sInstance = new ThumbnailTileCache(
+                    (int) (Runtime.getRuntime().maxMemory() / HEAP_FRACTION));
+            applicationContext.registerComponentCallbacks(sInstance);
+        }
+        return sInstance;
+    }
+
+    ThumbnailTileCache(int maxBytes) {
+        mTiles = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the bitmap of the tile for the given key, drawing the drawable from
+     * {@code tileFactory} at its intrinsic size if it isn't cached yet.
+     *
+     * @param key identifies the tile's content, it must change whenever what
+     *        {@code tileFactory} would draw changes
+     */
+    public Bitmap getTile(String key, Supplier<Drawable> tileFactory) {
+        Bitmap tile = mTiles.get(key);
+        if (tile == null) {
+            Drawable drawable = tileFactory.get();
+            int width = Math.max(1, drawable.getIntrinsicWidth());
+            int height = Math.max(1, drawable.getIntrinsicHeight());
+            tile = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            drawable.setBounds(0, 0, width, height);
+            drawable.draw(new Canvas(tile));
+            mTiles.put(key, tile);
+        }
+        return tile;
+    }
+
+    /**
+     * Drops every tile whose key starts with {@code keyPrefix}, e.g. after the package an option
+     * comes from was updated.
+     */
+    public void invalidate(String keyPrefix) {
+        for (String key : mTiles.snapshot().keySet()) {
+            if (key.startsWith(keyPrefix)) {
+                mTiles.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the color of the given theme attribute, only resolving it the first time it's
+     * requested for the context's theme.
+     */
+    @ColorInt
+    public int getColorAttr(Context context, @AttrRes int attr) {
+        Theme theme = context.getTheme();
+        synchronized (mThemeColors) {
+            SparseIntArray colors = mThemeColors.get(theme);
+            if (colors == null) {
+                colors = new SparseIntArray();
+                mThemeColors.put(theme, colors);
+            }
+            int index = colors.indexOfKey(attr);
+            if (index >= 0) {
+                return colors.valueAt(index);
+            }
+            TypedArray ta = context.obtainStyledAttributes(new int[]{attr});
+            int color = ta.getColor(0, 0);
+            ta.recycle();
+            colors.put(attr, color);
+            return color;
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            mTiles.evictAll();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            mTiles.trimToSize(mTiles.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        // Themes are recreated on configuration changes, their colors will be resolved again.
+    }
+
+    @Override
+    public void onLowMemory() {
+        mTiles.evictAll();
+    }
+}
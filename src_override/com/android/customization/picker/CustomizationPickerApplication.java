@@ -39,5 +39,7 @@ public class CustomizationPickerApplication extends Hilt_CustomizationPickerAppl
 
         // Initialize the injector.
         InjectorProvider.setInjector(mInjector);
+        // Load the clock plugins in the background, the clock section needs them on launch.
+        mInjector.warmUpClockRegistry(this);
     }
 }
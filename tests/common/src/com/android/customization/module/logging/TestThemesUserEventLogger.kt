@@ -42,7 +42,7 @@ class TestThemesUserEventLogger @Inject constructor() :
         this.themeSeedColor = seedColor
     }
 
-    override fun logGridApplied(grid: GridOption) {}
+    override fun logGridApplied(grid: GridOption, latencyMillis: Long) {}
 
     override fun logClockApplied(clockId: String) {}
 
@@ -48,6 +48,8 @@ constructor(
         throw UnsupportedOperationException("not implemented")
     }
 
+    override fun warmUpClockRegistry(context: Context) {}
+
     override fun getClockPickerInteractor(context: Context): ClockPickerInteractor {
         throw UnsupportedOperationException("not implemented")
     }
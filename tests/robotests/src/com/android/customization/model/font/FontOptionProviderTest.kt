@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.model.font
+
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.SmallTest
+import com.android.customization.model.ResourceConstants.CONFIG_BODY_FONT_FAMILY
+import com.android.customization.model.ResourceConstants.CONFIG_HEADLINE_FONT_FAMILY
+import com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_FONT
+import com.android.customization.testutils.FakeOverlayPackages
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@SmallTest
+@RunWith(RobolectricTestRunner::class)
+class FontOptionProviderTest {
+
+    private lateinit var overlays: FakeOverlayPackages
+    private lateinit var underTest: FontOptionProvider
+
+    @Before
+    fun setUp() {
+        overlays = FakeOverlayPackages(ApplicationProvider.getApplicationContext())
+        overlays.install(FONT_OVERLAY_1, OVERLAY_CATEGORY_FONT, FONT_RESOURCES)
+        underTest = FontOptionProvider(overlays.context, overlays.overlayManagerCompat)
+    }
+
+    @Test
+    fun getOptions_includesFontOverlayInstalledAfterFirstLoad() {
+        assertThat(getOverlayPackages()).containsExactly(null, FONT_OVERLAY_1)
+
+        overlays.install(FONT_OVERLAY_2, OVERLAY_CATEGORY_FONT, FONT_RESOURCES)
+
+        assertThat(getOverlayPackages()).containsExactly(null, FONT_OVERLAY_1, FONT_OVERLAY_2)
+    }
+
+    @Test
+    fun getOptions_dropsFontOverlayUninstalledAfterFirstLoad() {
+        assertThat(getOverlayPackages()).containsExactly(null, FONT_OVERLAY_1)
+
+        overlays.uninstall(FONT_OVERLAY_1)
+
+        assertThat(getOverlayPackages()).containsExactly(null)
+    }
+
+    @Test
+    fun getOptions_reusesOptionsOfUnchangedOverlays() {
+        val option = underTest.getOptions(/* reload= */ false).last()
+
+        overlays.install(FONT_OVERLAY_2, OVERLAY_CATEGORY_FONT, FONT_RESOURCES)
+
+        assertThat(underTest.getOptions(/* reload= */ false).any { it === option }).isTrue()
+    }
+
+    private fun getOverlayPackages(): List<String?> {
+        return underTest.getOptions(/* reload= */ false).map { it.packageName }
+    }
+
+    companion object {
+        private const val FONT_OVERLAY_1 = "com.android.theme.font.one"
+        private const val FONT_OVERLAY_2 = "com.android.theme.font.two"
+        private val FONT_RESOURCES =
+            mapOf(
+                CONFIG_HEADLINE_FONT_FAMILY to "sans-serif-medium",
+                CONFIG_BODY_FONT_FAMILY to "sans-serif",
+            )
+    }
+}
@@ -15,9 +15,13 @@
  */
 package com.android.customization.model.grid;
 
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
 import static junit.framework.TestCase.fail;
 
 import static org.mockito.Mockito.anyBoolean;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -30,10 +34,14 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 @RunWith(RobolectricTestRunner.class)
 public class GridOptionsManagerTest {
 
@@ -64,6 +72,25 @@ public class GridOptionsManagerTest {
                 fail("onError was called when grid had been applied successfully");
             }
         });
+        verify(mThemesUserEventLogger).logGridApplied(eq(grid), anyLong());
+    }
+
+    @Test
+    public void testIsAvailable_probedAgainOnceOptionsAreInvalidated() {
+        ArgumentCaptor<Runnable> onOptionsInvalidated = ArgumentCaptor.forClass(Runnable.class);
+        verify(mProvider).setOnOptionsInvalidatedListener(onOptionsInvalidated.capture());
+        GridOption grid1 = new GridOption("testTitle1", "testName1", true, 4, 4, null, 1, "");
+        GridOption grid2 = new GridOption("testTitle2", "testName2", false, 5, 5, null, 1, "");
+        when(mProvider.areGridsAvailable()).thenReturn(true);
+        when(mProvider.fetch(anyBoolean())).thenReturn(Arrays.asList(grid1, grid2));
+        assertTrue(mManager.isAvailable());
+
+        // The launcher is only asked again once it reports a change.
+        when(mProvider.fetch(anyBoolean())).thenReturn(Collections.singletonList(grid1));
+        assertTrue(mManager.isAvailable());
+
+        onOptionsInvalidated.getValue().run();
+        assertFalse(mManager.isAvailable());
     }
 
     @Test
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.model.grid;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class GridPreviewSnapshotCacheTest {
+
+    private static final String SQUARE_PATH = "M0,0 L100,0 L100,100 L0,100 Z";
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 200;
+
+    private final GridOption mSmallGrid = grid("small", 4);
+    private final GridOption mLargeGrid = grid("large", 5);
+    // Snapshots being drawn in the background, run by the tests.
+    private final List<Runnable> mBackgroundTasks = new ArrayList<>();
+    private GridPreviewSnapshotCache mCache;
+
+    @Before
+    public void setUp() {
+        mCache = new GridPreviewSnapshotCache(mBackgroundTasks::add);
+    }
+
+    @Test
+    public void get_drawsTheGridOnce() {
+        Bitmap snapshot = mCache.get(mSmallGrid, WIDTH, HEIGHT, Color.BLACK);
+
+        assertThat(snapshot.getWidth()).isEqualTo(WIDTH);
+        assertThat(snapshot.getHeight()).isEqualTo(HEIGHT);
+        assertThat(mCache.get(mSmallGrid, WIDTH, HEIGHT, Color.BLACK)).isSameInstanceAs(snapshot);
+    }
+
+    @Test
+    public void get_redrawsTheGridAtAnotherSizeOrColor() {
+        Bitmap snapshot = mCache.get(mSmallGrid, WIDTH, HEIGHT, Color.BLACK);
+
+        assertThat(mCache.get(mSmallGrid, WIDTH, HEIGHT, Color.WHITE))
+                .isNotSameInstanceAs(snapshot);
+        assertThat(mCache.get(mSmallGrid, WIDTH / 2, HEIGHT / 2, Color.WHITE).getWidth())
+                .isEqualTo(WIDTH / 2);
+    }
+
+    @Test
+    public void retainAll_thenGet_onlyRedrawsTheGridsThatChanged() {
+        Bitmap smallSnapshot = mCache.get(mSmallGrid, WIDTH, HEIGHT, Color.BLACK);
+        Bitmap largeSnapshot = mCache.get(mLargeGrid, WIDTH, HEIGHT, Color.BLACK);
+        // The launcher reports a change of its grids, after which they're reloaded and the large
+        // one has another size.
+        GridOption changedLargeGrid = grid("large", 6);
+        mCache.retainAll(Arrays.asList(mSmallGrid, changedLargeGrid));
+
+        assertThat(mCache.get(mSmallGrid, WIDTH, HEIGHT, Color.BLACK))
+                .isSameInstanceAs(smallSnapshot);
+        assertThat(mCache.get(changedLargeGrid, WIDTH, HEIGHT, Color.BLACK))
+                .isNotSameInstanceAs(largeSnapshot);
+    }
+
+    @Test
+    public void retainAll_dropsTheGridsThatAreGone() {
+        Bitmap snapshot = mCache.get(mSmallGrid, WIDTH, HEIGHT, Color.BLACK);
+
+        mCache.retainAll(Collections.singletonList(mLargeGrid));
+
+        assertThat(mCache.get(mSmallGrid, WIDTH, HEIGHT, Color.BLACK))
+                .isNotSameInstanceAs(snapshot);
+    }
+
+    @Test
+    public void prefetchAround_drawsTheNeighborsInTheBackground() {
+        GridOption largestGrid = grid("largest", 6);
+        GridOption hugeGrid = grid("huge", 7);
+        List<GridOption> options = Arrays.asList(mSmallGrid, mLargeGrid, largestGrid, hugeGrid);
+
+        // The large grid is being previewed, so its snapshot is shown.
+        mCache.get(mLargeGrid, WIDTH, HEIGHT, Color.BLACK);
+
+        mCache.prefetchAround(options, mLargeGrid, WIDTH, HEIGHT, Color.BLACK);
+        assertThat(mBackgroundTasks).hasSize(2);
+        mBackgroundTasks.forEach(Runnable::run);
+        mBackgroundTasks.clear();
+
+        // Switching to the largest grid only draws the huge one.
+        mCache.prefetchAround(options, largestGrid, WIDTH, HEIGHT, Color.BLACK);
+        assertThat(mBackgroundTasks).hasSize(1);
+        mBackgroundTasks.clear();
+        mCache.prefetchAround(options, mLargeGrid, WIDTH, HEIGHT, Color.BLACK);
+        assertThat(mBackgroundTasks).isEmpty();
+    }
+
+    private static GridOption grid(String name, int size) {
+        return new GridOption(name, name, false, size, size, null, 1, SQUARE_PATH);
+    }
+}
@@ -17,6 +17,7 @@
 
 package com.android.customization.model.grid.data.repository
 
+import android.graphics.Bitmap
 import com.android.customization.model.CustomizationManager
 import com.android.customization.model.grid.GridOption
 import com.android.customization.picker.grid.data.repository.GridRepository
@@ -28,6 +29,7 @@ import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableSharedFlow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asSharedFlow
 import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.flow.stateIn
@@ -56,12 +58,30 @@ class FakeGridRepository(
 
     override fun getSelectedOption(): GridOption? = null
 
-    override fun applySelectedOption(callback: CustomizationManager.Callback) {}
+    override val isApplying: StateFlow<Boolean> = MutableStateFlow(false)
+
+    override suspend fun applySelectedOption(callback: CustomizationManager.Callback) {}
 
     override fun clearSelectedOption() {}
 
     override fun isSelectedOptionApplied() = false
 
+    override val selectedOptionIsApplied: Flow<Boolean> = MutableStateFlow(false)
+
+    override fun getPreviewSnapshot(
+        option: GridOption,
+        width: Int,
+        height: Int,
+        color: Int,
+    ): Bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888)
+
+    override fun prefetchPreviewSnapshots(
+        option: GridOption,
+        width: Int,
+        height: Int,
+        color: Int,
+    ) {}
+
     fun setOptions(
         count: Int,
         selectedIndex: Int = 0,
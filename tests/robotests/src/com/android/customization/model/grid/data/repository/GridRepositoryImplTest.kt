@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.model.grid.data.repository
+
+import androidx.test.filters.SmallTest
+import com.android.customization.model.CustomizationManager
+import com.android.customization.model.grid.GridOption
+import com.android.customization.model.grid.GridOptionsManager
+import com.android.customization.picker.grid.data.repository.GridRepositoryImpl
+import com.android.customization.picker.grid.shared.model.GridOptionItemsModel
+import com.android.wallpaper.testing.collectLastValue
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.StandardTestDispatcher
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.ArgumentMatchers.any
+import org.mockito.Mock
+import org.mockito.Mockito.doAnswer
+import org.mockito.Mockito.`when` as whenever
+import org.mockito.junit.MockitoJUnit
+import org.mockito.junit.MockitoRule
+import org.robolectric.RobolectricTestRunner
+
+@OptIn(ExperimentalCoroutinesApi::class)
+@SmallTest
+@RunWith(RobolectricTestRunner::class)
+class GridRepositoryImplTest {
+
+    @get:Rule val rule: MockitoRule = MockitoJUnit.rule()
+
+    @Mock private lateinit var manager: GridOptionsManager
+
+    private lateinit var testScope: TestScope
+    private lateinit var underTest: GridRepositoryImpl
+
+    @Before
+    fun setUp() {
+        val testDispatcher = StandardTestDispatcher()
+        testScope = TestScope(testDispatcher)
+        // Every fetch hands back a new list, as if the launcher reported a change each time.
+        whenever(manager.cachedOptions).thenAnswer { createOptions(activeIndex = 0) }
+        underTest =
+            GridRepositoryImpl(
+                manager = manager,
+                backgroundDispatcher = testDispatcher,
+                isGridApplyButtonEnabled = false,
+            )
+    }
+
+    @Test
+    fun repeatedReloads_doNotLeaveSelectionCollectorsBehind() =
+        testScope.runTest {
+            repeat(RELOAD_COUNT) { underTest.getOptions() }
+            runCurrent()
+
+            assertThat(underTest.selectionSubscriptionCount.value).isEqualTo(0)
+
+            val loaded = underTest.getOptions() as GridOptionItemsModel.Loaded
+            val isFirstSelected = collectLastValue(loaded.options[0].isSelected)
+            assertThat(isFirstSelected()).isTrue()
+            assertThat(underTest.selectionSubscriptionCount.value).isEqualTo(1)
+        }
+
+    @Test
+    fun isSelected_reflectsActiveOption() =
+        testScope.runTest {
+            val loaded = underTest.getOptions() as GridOptionItemsModel.Loaded
+            val isFirstSelected = collectLastValue(loaded.options[0].isSelected)
+            val isSecondSelected = collectLastValue(loaded.options[1].isSelected)
+            assertThat(isFirstSelected()).isTrue()
+            assertThat(isSecondSelected()).isFalse()
+
+            whenever(manager.cachedOptions).thenAnswer { createOptions(activeIndex = 1) }
+            underTest.getOptions()
+
+            assertThat(isFirstSelected()).isFalse()
+            assertThat(isSecondSelected()).isTrue()
+        }
+
+    @Test
+    fun applySelectedOption_reportsProgressThenResult() =
+        testScope.runTest {
+            underTest.getOptions()
+            val isApplyingWhileApplying = mutableListOf<Boolean>()
+            doAnswer { invocation ->
+                    isApplyingWhileApplying.add(underTest.isApplying.value)
+                    invocation.getArgument<CustomizationManager.Callback>(1).onSuccess()
+                }
+                .`when`(manager)
+                .apply(any(), any())
+            var succeeded = false
+
+            underTest.applySelectedOption(
+                object : CustomizationManager.Callback {
+                    override fun onSuccess() {
+                        succeeded = true
+                    }
+
+                    override fun onError(throwable: Throwable?) {}
+                }
+            )
+
+            assertThat(isApplyingWhileApplying).containsExactly(true)
+            assertThat(underTest.isApplying.value).isFalse()
+            assertThat(succeeded).isTrue()
+        }
+
+    @Test
+    fun selectedOptionIsApplied_followsSelectionAndApply() =
+        testScope.runTest {
+            underTest =
+                GridRepositoryImpl(
+                    manager = manager,
+                    backgroundDispatcher = StandardTestDispatcher(testScheduler),
+                    isGridApplyButtonEnabled = true,
+                )
+            val selectedOptionIsApplied = collectLastValue(underTest.selectedOptionIsApplied)
+            val loaded = underTest.getOptions() as GridOptionItemsModel.Loaded
+            assertThat(selectedOptionIsApplied()).isTrue()
+
+            loaded.options[1].onSelected()
+            assertThat(selectedOptionIsApplied()).isFalse()
+
+            doAnswer { invocation ->
+                    invocation.getArgument<CustomizationManager.Callback>(1).onSuccess()
+                }
+                .`when`(manager)
+                .apply(any(), any())
+            underTest.applySelectedOption(
+                object : CustomizationManager.Callback {
+                    override fun onSuccess() {}
+
+                    override fun onError(throwable: Throwable?) {}
+                }
+            )
+            assertThat(selectedOptionIsApplied()).isTrue()
+        }
+
+    @Test
+    fun getOptions_afterSelectionCleared_selectsActiveOptionOfCachedList() =
+        testScope.runTest {
+            underTest =
+                GridRepositoryImpl(
+                    manager = manager,
+                    backgroundDispatcher = StandardTestDispatcher(testScheduler),
+                    isGridApplyButtonEnabled = true,
+                )
+            val options = createOptions(activeIndex = 0)
+            whenever(manager.cachedOptions).thenReturn(options)
+            val loaded = underTest.getOptions() as GridOptionItemsModel.Loaded
+            loaded.options[1].onSelected()
+            assertThat(underTest.getSelectedOption()).isSameInstanceAs(options[1])
+
+            underTest.clearSelectedOption()
+            underTest.getOptions()
+
+            assertThat(underTest.getSelectedOption()).isSameInstanceAs(options[0])
+            assertThat(options.map { it.isActive(manager) }).containsExactly(true, false, false)
+        }
+
+    private fun createOptions(activeIndex: Int): List<GridOption> {
+        return List(OPTION_COUNT) { index ->
+            GridOption(
+                /* title= */ "option_$index",
+                /* name= */ "option_$index",
+                /* isCurrent= */ index == activeIndex,
+                /* rows= */ index + 3,
+                /* cols= */ 4,
+                /* previewImageUri= */ null,
+                /* previewPagesCount= */ 1,
+                /* iconShapePath= */ "",
+            )
+        }
+    }
+
+    companion object {
+        private const val OPTION_COUNT = 3
+        private const val RELOAD_COUNT = 10
+    }
+}
@@ -26,6 +26,7 @@ import com.android.wallpaper.testing.FakeSnapshotStore
 import com.android.wallpaper.testing.collectLastValue
 import com.google.common.truth.Truth.assertThat
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.runBlocking
 import kotlinx.coroutines.test.TestScope
 import kotlinx.coroutines.test.runCurrent
@@ -80,9 +81,9 @@ class GridInteractorTest {
             assertThat(options()).isInstanceOf(GridOptionItemsModel.Loaded::class.java)
             (options() as? GridOptionItemsModel.Loaded)?.let { loaded ->
                 assertThat(loaded.options).hasSize(3)
-                assertThat(loaded.options[0].isSelected.value).isTrue()
-                assertThat(loaded.options[1].isSelected.value).isFalse()
-                assertThat(loaded.options[2].isSelected.value).isFalse()
+                assertThat(loaded.options[0].isSelected.first()).isTrue()
+                assertThat(loaded.options[1].isSelected.first()).isFalse()
+                assertThat(loaded.options[2].isSelected.first()).isFalse()
             }
 
             val storedSnapshot = store.retrieve()
@@ -93,9 +94,9 @@ class GridInteractorTest {
             assertThat(options()).isInstanceOf(GridOptionItemsModel.Loaded::class.java)
             (options() as? GridOptionItemsModel.Loaded)?.let { loaded ->
                 assertThat(loaded.options).hasSize(3)
-                assertThat(loaded.options[0].isSelected.value).isFalse()
-                assertThat(loaded.options[1].isSelected.value).isTrue()
-                assertThat(loaded.options[2].isSelected.value).isFalse()
+                assertThat(loaded.options[0].isSelected.first()).isFalse()
+                assertThat(loaded.options[1].isSelected.first()).isTrue()
+                assertThat(loaded.options[2].isSelected.first()).isFalse()
             }
             assertThat(store.retrieve()).isNotEqualTo(storedSnapshot)
         }
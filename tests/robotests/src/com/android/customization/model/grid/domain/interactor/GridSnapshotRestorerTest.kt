@@ -25,6 +25,7 @@ import com.android.customization.picker.grid.shared.model.GridOptionItemsModel
 import com.android.wallpaper.testing.FakeSnapshotStore
 import com.google.common.truth.Truth.assertThat
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.test.TestScope
 import kotlinx.coroutines.test.runCurrent
 import kotlinx.coroutines.test.runTest
@@ -106,7 +107,7 @@ class GridSnapshotRestorerTest {
     private suspend fun getSelectedIndex(): Int {
         return (repository.getOptions() as? GridOptionItemsModel.Loaded)?.options?.indexOfFirst {
             optionItem ->
-            optionItem.isSelected.value
+            optionItem.isSelected.first()
         }
             ?: -1
     }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.model.iconpack
+
+import android.graphics.drawable.Drawable
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.SmallTest
+import com.android.customization.model.ResourceConstants.ICONS_FOR_PREVIEW
+import com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_ICON_ANDROID
+import com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_ICON_SETTINGS
+import com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_ICON_SYSUI
+import com.android.customization.model.ResourceConstants.SETTINGS_PACKAGE
+import com.android.customization.model.ResourceConstants.SYSUI_PACKAGE
+import com.android.customization.testutils.FakeOverlayPackages
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mockito.mock
+import org.mockito.Mockito.verifyNoInteractions
+import org.robolectric.RobolectricTestRunner
+
+@SmallTest
+@RunWith(RobolectricTestRunner::class)
+class IconPackOptionProviderTest {
+
+    private lateinit var overlays: FakeOverlayPackages
+    private lateinit var underTest: IconPackOptionProvider
+
+    @Before
+    fun setUp() {
+        overlays = FakeOverlayPackages(ApplicationProvider.getApplicationContext())
+        installIconPack(ICON_PACK_1)
+        underTest = IconPackOptionProvider(overlays.context, overlays.overlayManagerCompat)
+    }
+
+    @Test
+    fun getOptions_includesIconPackInstalledAfterFirstLoad() {
+        assertThat(getAndroidOverlayPackages()).containsExactly(null, "$ICON_PACK_1.android")
+
+        installIconPack(ICON_PACK_2)
+
+        assertThat(getAndroidOverlayPackages())
+            .containsExactly(null, "$ICON_PACK_1.android", "$ICON_PACK_2.android")
+    }
+
+    @Test
+    fun getOptions_dropsIconPackMissingAnOverlayAfterUninstall() {
+        assertThat(getAndroidOverlayPackages()).containsExactly(null, "$ICON_PACK_1.android")
+
+        overlays.uninstall("$ICON_PACK_1.settings")
+
+        assertThat(getAndroidOverlayPackages()).containsExactly(null)
+    }
+
+    @Test
+    fun getOptions_doesNotLoadPreviewIcons() {
+        val icon = mock(Drawable::class.java)
+        installIconPack(ICON_PACK_2, ICONS_FOR_PREVIEW.associateWith { icon })
+
+        assertThat(getAndroidOverlayPackages()).contains("$ICON_PACK_2.android")
+
+        // Icons are only loaded once their option is bound.
+        verifyNoInteractions(icon)
+    }
+
+    @Test
+    fun getOptions_reusesOptionsOfUnchangedIconPacks() {
+        val option = underTest.options.single { !it.isDefault }
+
+        installIconPack(ICON_PACK_2)
+
+        assertThat(underTest.options.any { it === option }).isTrue()
+    }
+
+    private fun installIconPack(prefix: String, icons: Map<String, Any> = emptyMap()) {
+        overlays.install("$prefix.android", OVERLAY_CATEGORY_ICON_ANDROID, icons)
+        overlays.install(
+            "$prefix.systemui",
+            OVERLAY_CATEGORY_ICON_SYSUI,
+            targetPackage = SYSUI_PACKAGE,
+        )
+        overlays.install(
+            "$prefix.settings",
+            OVERLAY_CATEGORY_ICON_SETTINGS,
+            targetPackage = SETTINGS_PACKAGE,
+        )
+    }
+
+    private fun getAndroidOverlayPackages(): List<String?> {
+        return underTest.options.map { it.overlayPackages[OVERLAY_CATEGORY_ICON_ANDROID] }
+    }
+
+    companion object {
+        private const val ICON_PACK_1 = "com.android.theme.icon_pack.one"
+        private const val ICON_PACK_2 = "com.android.theme.icon_pack.two"
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.model.iconpack
+
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Color
+import android.graphics.drawable.BitmapDrawable
+import android.graphics.drawable.ColorDrawable
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.SmallTest
+import com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_ICON_ANDROID
+import com.android.customization.testutils.FakeOverlayPackages
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@SmallTest
+@RunWith(RobolectricTestRunner::class)
+class IconPackPreviewCacheTest {
+
+    private lateinit var overlays: FakeOverlayPackages
+    private lateinit var icon: CountingDrawable
+    private lateinit var underTest: IconPackPreviewCache
+
+    @Before
+    fun setUp() {
+        overlays = FakeOverlayPackages(ApplicationProvider.getApplicationContext())
+        icon = CountingDrawable()
+        overlays.install(ICON_PACK, OVERLAY_CATEGORY_ICON_ANDROID, mapOf(ICON_NAME to icon))
+        underTest = IconPackPreviewCache(overlays.context, MAX_BYTES)
+    }
+
+    @Test
+    fun getIcon_loadsTheIconOnlyOnceAsked() {
+        assertThat(icon.drawCount).isEqualTo(0)
+
+        val drawable = underTest.getIcon(ICON_PACK, ICON_NAME, ICON_SIZE_PX)
+
+        assertThat(drawable).isNotNull()
+        assertThat(icon.drawCount).isEqualTo(1)
+    }
+
+    @Test
+    fun getIcon_sameSize_reusesTheCachedBitmap() {
+        val first = getBitmap(ICON_SIZE_PX)
+        val second = getBitmap(ICON_SIZE_PX)
+
+        assertThat(second).isSameInstanceAs(first)
+        assertThat(icon.drawCount).isEqualTo(1)
+    }
+
+    @Test
+    fun getIcon_rasterizesAtTheRequestedSize() {
+        val thumbnail = getBitmap(ICON_SIZE_PX)
+        val preview = getBitmap(2 * ICON_SIZE_PX)
+
+        assertThat(thumbnail.width).isEqualTo(ICON_SIZE_PX)
+        assertThat(thumbnail.height).isEqualTo(ICON_SIZE_PX)
+        assertThat(preview.width).isEqualTo(2 * ICON_SIZE_PX)
+        assertThat(preview.height).isEqualTo(2 * ICON_SIZE_PX)
+        assertThat(icon.drawCount).isEqualTo(2)
+    }
+
+    @Test
+    fun getIcon_missingIcon_returnsNull() {
+        assertThat(underTest.getIcon(ICON_PACK, "ic_missing", ICON_SIZE_PX)).isNull()
+    }
+
+    @Test
+    fun invalidatePackage_loadsTheIconAgain() {
+        val before = getBitmap(ICON_SIZE_PX)
+
+        underTest.invalidatePackage(ICON_PACK)
+        val after = getBitmap(ICON_SIZE_PX)
+
+        assertThat(after).isNotSameInstanceAs(before)
+        assertThat(icon.drawCount).isEqualTo(2)
+    }
+
+    private fun getBitmap(size: Int): Bitmap {
+        return (checkNotNull(underTest.getIcon(ICON_PACK, ICON_NAME, size)) as BitmapDrawable)
+            .bitmap
+    }
+
+    /** Counts how many times the icon is drawn, that is rasterized by the cache. */
+    private class CountingDrawable : ColorDrawable(Color.BLUE) {
+        var drawCount = 0
+            private set
+
+        override fun draw(canvas: Canvas) {
+            drawCount++
+            super.draw(canvas)
+        }
+    }
+
+    companion object {
+        private const val ICON_PACK = "com.android.theme.icon_pack.one.android"
+        private const val ICON_NAME = "ic_wifi_signal_3"
+        private const val ICON_SIZE_PX = 40
+        private const val MAX_BYTES = 1024 * 1024
+    }
+}
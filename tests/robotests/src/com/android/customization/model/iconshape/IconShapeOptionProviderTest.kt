@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.model.iconshape
+
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.SmallTest
+import com.android.customization.model.ResourceConstants.CONFIG_CORNERRADIUS
+import com.android.customization.model.ResourceConstants.CONFIG_ICON_MASK
+import com.android.customization.model.ResourceConstants.OVERLAY_CATEGORY_SHAPE
+import com.android.customization.testutils.FakeOverlayPackages
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@SmallTest
+@RunWith(RobolectricTestRunner::class)
+class IconShapeOptionProviderTest {
+
+    private lateinit var overlays: FakeOverlayPackages
+    private lateinit var underTest: IconShapeOptionProvider
+
+    @Before
+    fun setUp() {
+        overlays = FakeOverlayPackages(ApplicationProvider.getApplicationContext())
+        overlays.install(SHAPE_OVERLAY_1, OVERLAY_CATEGORY_SHAPE, SHAPE_RESOURCES)
+        underTest = IconShapeOptionProvider(overlays.context, overlays.overlayManagerCompat)
+    }
+
+    @Test
+    fun getOptions_includesShapeOverlayInstalledAfterFirstLoad() {
+        assertThat(getOverlayPackages()).containsExactly(null, SHAPE_OVERLAY_1)
+
+        overlays.install(SHAPE_OVERLAY_2, OVERLAY_CATEGORY_SHAPE, SHAPE_RESOURCES)
+
+        assertThat(getOverlayPackages()).containsExactly(null, SHAPE_OVERLAY_1, SHAPE_OVERLAY_2)
+    }
+
+    @Test
+    fun getOptions_dropsShapeOverlayUninstalledAfterFirstLoad() {
+        assertThat(getOverlayPackages()).containsExactly(null, SHAPE_OVERLAY_1)
+
+        overlays.uninstall(SHAPE_OVERLAY_1)
+
+        assertThat(getOverlayPackages()).containsExactly(null)
+    }
+
+    private fun getOverlayPackages(): List<String?> {
+        return underTest.options.map { it.packageName }
+    }
+
+    companion object {
+        private const val SHAPE_OVERLAY_1 = "com.android.theme.icon.one"
+        private const val SHAPE_OVERLAY_2 = "com.android.theme.icon.two"
+        private val SHAPE_RESOURCES =
+            mapOf(
+                CONFIG_ICON_MASK to "M50,0 L100,50 L50,100 L0,50 Z",
+                CONFIG_CORNERRADIUS to 16,
+            )
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.picker.clock.data.repository
+
+import android.graphics.Color
+import androidx.test.filters.SmallTest
+import com.android.customization.picker.clock.data.repository.ClockPickerRepositoryImpl.Companion.KEY_METADATA_COLOR_TONE_PROGRESS
+import com.android.customization.picker.clock.data.repository.ClockPickerRepositoryImpl.Companion.KEY_METADATA_SELECTED_COLOR_ID
+import com.android.customization.picker.clock.shared.ClockSize
+import com.android.customization.picker.clock.shared.model.ClockSnapshotModel
+import com.android.systemui.plugins.clocks.ClockSettings
+import com.android.systemui.shared.clocks.ClockRegistry
+import com.android.wallpaper.testing.FakeSecureSettingsRepository
+import com.android.wallpaper.testing.collectLastValue
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.test.StandardTestDispatcher
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.runTest
+import org.json.JSONObject
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.ArgumentMatchers.any
+import org.mockito.Mock
+import org.mockito.Mockito.doAnswer
+import org.mockito.Mockito.`when` as whenever
+import org.mockito.junit.MockitoJUnit
+import org.mockito.junit.MockitoRule
+import org.robolectric.RobolectricTestRunner
+
+@OptIn(ExperimentalCoroutinesApi::class)
+@SmallTest
+@RunWith(RobolectricTestRunner::class)
+class ClockPickerRepositoryImplTest {
+
+    @get:Rule val rule: MockitoRule = MockitoJUnit.rule()
+
+    @Mock private lateinit var registry: ClockRegistry
+
+    private lateinit var testScope: TestScope
+    private lateinit var underTest: ClockPickerRepositoryImpl
+    // The registry's settings, only changed through mutateSetting like the real registry.
+    private var settings: ClockSettings? = null
+    private var mutationCount = 0
+
+    @Before
+    fun setUp() {
+        val testDispatcher = StandardTestDispatcher()
+        testScope = TestScope(testDispatcher)
+        settings =
+            ClockSettings(clockId = CLOCK_ID_0, seedColor = Color.BLUE).apply {
+                metadata =
+                    JSONObject()
+                        .put(KEY_METADATA_SELECTED_COLOR_ID, COLOR_ID_BLUE)
+                        .put(KEY_METADATA_COLOR_TONE_PROGRESS, COLOR_TONE_PROGRESS_BLUE)
+                        .put(KEY_OTHER_METADATA, OTHER_METADATA)
+            }
+        whenever(registry.settings).thenAnswer { settings }
+        doAnswer {
+                val mutator = it.getArgument<(ClockSettings) -> ClockSettings>(0)
+                settings = mutator(settings ?: ClockSettings())
+                mutationCount++
+                null
+            }
+            .`when`(registry)
+            .mutateSetting(any())
+        underTest =
+            ClockPickerRepositoryImpl(
+                secureSettingsRepository = FakeSecureSettingsRepository(),
+                registry = registry,
+                scope = testScope.backgroundScope,
+                mainDispatcher = testDispatcher,
+                isPluginScanSettled = MutableStateFlow(true),
+            )
+    }
+
+    @Test
+    fun setClockOption_colorOnly_keepsClockAndMergesColorIntoMetadata() =
+        testScope.runTest {
+            underTest.setClockOption(
+                ClockSnapshotModel(
+                    selectedColorId = COLOR_ID_RED,
+                    colorToneProgress = COLOR_TONE_PROGRESS_RED,
+                    seedColor = Color.RED,
+                )
+            )
+
+            val newSettings = checkNotNull(settings)
+            assertThat(newSettings.clockId).isEqualTo(CLOCK_ID_0)
+            assertThat(newSettings.seedColor).isEqualTo(Color.RED)
+            assertThat(newSettings.metadata.getString(KEY_METADATA_SELECTED_COLOR_ID))
+                .isEqualTo(COLOR_ID_RED)
+            assertThat(newSettings.metadata.getInt(KEY_METADATA_COLOR_TONE_PROGRESS))
+                .isEqualTo(COLOR_TONE_PROGRESS_RED)
+            assertThat(newSettings.metadata.getString(KEY_OTHER_METADATA)).isEqualTo(OTHER_METADATA)
+            assertThat(mutationCount).isEqualTo(1)
+        }
+
+    @Test
+    fun setClockOption_seedColorWithoutColorToneProgress_doesNotChangeSettings() =
+        testScope.runTest {
+            underTest.setClockOption(ClockSnapshotModel(seedColor = Color.RED))
+
+            val newSettings = checkNotNull(settings)
+            assertThat(newSettings.seedColor).isEqualTo(Color.BLUE)
+            assertThat(mutationCount).isEqualTo(0)
+        }
+
+    @Test
+    fun setClockOption_clockIdOnly_keepsColorAndMetadata() =
+        testScope.runTest {
+            underTest.setClockOption(ClockSnapshotModel(clockId = CLOCK_ID_1))
+
+            val newSettings = checkNotNull(settings)
+            assertThat(newSettings.clockId).isEqualTo(CLOCK_ID_1)
+            assertThat(newSettings.seedColor).isEqualTo(Color.BLUE)
+            assertThat(newSettings.metadata.getString(KEY_METADATA_SELECTED_COLOR_ID))
+                .isEqualTo(COLOR_ID_BLUE)
+            assertThat(newSettings.metadata.getInt(KEY_METADATA_COLOR_TONE_PROGRESS))
+                .isEqualTo(COLOR_TONE_PROGRESS_BLUE)
+            assertThat(newSettings.metadata.getString(KEY_OTHER_METADATA)).isEqualTo(OTHER_METADATA)
+        }
+
+    @Test
+    fun setClockOption_clockAndColor_writesBothInOneMutation() =
+        testScope.runTest {
+            underTest.setClockOption(
+                ClockSnapshotModel(
+                    clockId = CLOCK_ID_1,
+                    selectedColorId = COLOR_ID_RED,
+                    colorToneProgress = COLOR_TONE_PROGRESS_RED,
+                    seedColor = Color.RED,
+                )
+            )
+
+            val newSettings = checkNotNull(settings)
+            assertThat(newSettings.clockId).isEqualTo(CLOCK_ID_1)
+            assertThat(newSettings.seedColor).isEqualTo(Color.RED)
+            assertThat(newSettings.metadata.getString(KEY_METADATA_SELECTED_COLOR_ID))
+                .isEqualTo(COLOR_ID_RED)
+            assertThat(mutationCount).isEqualTo(1)
+        }
+
+    @Test
+    fun setClockOption_clockSizeOnly_writesSizeWithoutChangingSettings() =
+        testScope.runTest {
+            val selectedClockSize = collectLastValue(underTest.selectedClockSize)
+
+            underTest.setClockOption(ClockSnapshotModel(clockSize = ClockSize.SMALL))
+
+            assertThat(selectedClockSize()).isEqualTo(ClockSize.SMALL)
+            assertThat(mutationCount).isEqualTo(0)
+        }
+
+    companion object {
+        private const val CLOCK_ID_0 = "clock0"
+        private const val CLOCK_ID_1 = "clock1"
+        private const val COLOR_ID_BLUE = "blue"
+        private const val COLOR_ID_RED = "red"
+        private const val COLOR_TONE_PROGRESS_BLUE = 30
+        private const val COLOR_TONE_PROGRESS_RED = 70
+        private const val KEY_OTHER_METADATA = "otherMetadata"
+        private const val OTHER_METADATA = "other"
+    }
+}
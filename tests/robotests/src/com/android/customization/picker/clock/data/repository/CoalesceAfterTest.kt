@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.picker.clock.data.repository
+
+import androidx.test.filters.SmallTest
+import com.android.customization.picker.clock.data.repository.ClockPickerRepositoryImpl.Companion.CLOCK_LIST_COALESCING_WINDOW_MILLIS
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@OptIn(ExperimentalCoroutinesApi::class)
+@SmallTest
+@RunWith(RobolectricTestRunner::class)
+class CoalesceAfterTest {
+
+    private val testScope = TestScope()
+    private val clockIds = MutableStateFlow(listOf(CLOCK_ID_0))
+    private val isPluginScanSettled = MutableStateFlow(false)
+    // The clock lists emitted, with the virtual time they were emitted at.
+    private val emissions = mutableListOf<Pair<Long, List<String>>>()
+
+    @Test
+    fun coalesceAfter_emitsFirstClocksAsSoonAsThePluginScanSettles() =
+        testScope.runTest {
+            collectCoalescedClockIds()
+            advanceTimeBy(PLUGIN_SCAN_DURATION_MILLIS)
+            clockIds.value = listOf(CLOCK_ID_0, CLOCK_ID_1)
+            runCurrent()
+            assertThat(emissions).isEmpty()
+
+            isPluginScanSettled.value = true
+            runCurrent()
+
+            // Time to first clock, counted from the end of the plugin scan, is zero.
+            assertThat(emissions)
+                .containsExactly(PLUGIN_SCAN_DURATION_MILLIS to listOf(CLOCK_ID_0, CLOCK_ID_1))
+        }
+
+    @Test
+    fun coalesceAfter_coalescesLaterChangesWithinAWindow() =
+        testScope.runTest {
+            isPluginScanSettled.value = true
+            collectCoalescedClockIds()
+            runCurrent()
+
+            clockIds.value = listOf(CLOCK_ID_0, CLOCK_ID_1)
+            runCurrent()
+            clockIds.value = listOf(CLOCK_ID_0, CLOCK_ID_1, CLOCK_ID_2)
+            runCurrent()
+            advanceTimeBy(CLOCK_LIST_COALESCING_WINDOW_MILLIS)
+            runCurrent()
+
+            assertThat(emissions)
+                .containsExactly(
+                    0L to listOf(CLOCK_ID_0),
+                    CLOCK_LIST_COALESCING_WINDOW_MILLIS to
+                        listOf(CLOCK_ID_0, CLOCK_ID_1, CLOCK_ID_2),
+                )
+                .inOrder()
+        }
+
+    private fun TestScope.collectCoalescedClockIds() {
+        backgroundScope.launch {
+            clockIds
+                .coalesceAfter(isPluginScanSettled, CLOCK_LIST_COALESCING_WINDOW_MILLIS)
+                .collect { emissions.add(testScheduler.currentTime to it) }
+        }
+    }
+
+    companion object {
+        private const val CLOCK_ID_0 = "clock0"
+        private const val CLOCK_ID_1 = "clock1"
+        private const val CLOCK_ID_2 = "clock2"
+        private const val PLUGIN_SCAN_DURATION_MILLIS = 300L
+    }
+}
@@ -21,6 +21,7 @@ import androidx.annotation.IntRange
 import com.android.customization.picker.clock.data.repository.FakeClockPickerRepository.Companion.fakeClocks
 import com.android.customization.picker.clock.shared.ClockSize
 import com.android.customization.picker.clock.shared.model.ClockMetadataModel
+import com.android.customization.picker.clock.shared.model.ClockSnapshotModel
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.asStateFlow
@@ -74,6 +75,26 @@ open class FakeClockPickerRepository(clocks: List<ClockMetadataModel> = fakeCloc
         _selectedClockSize.value = size
     }
 
+    override suspend fun setClockOption(option: ClockSnapshotModel) {
+        option.clockSize?.let { _selectedClockSize.value = it }
+        option.colorToneProgress?.let {
+            selectedColorId.value = option.selectedColorId
+            colorTone.value = it
+            seedColor.value = option.seedColor
+        }
+        option.clockId?.let { selectedClockId.value = it }
+    }
+
+    override suspend fun getCurrentClockOption(): ClockSnapshotModel {
+        return ClockSnapshotModel(
+            clockId = selectedClockId.value,
+            clockSize = _selectedClockSize.value,
+            selectedColorId = selectedColorId.value,
+            colorToneProgress = colorTone.value,
+            seedColor = seedColor.value,
+        )
+    }
+
     companion object {
         const val CLOCK_ID_0 = "clock0"
         const val CLOCK_ID_1 = "clock1"
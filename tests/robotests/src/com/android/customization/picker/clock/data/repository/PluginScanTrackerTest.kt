@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.picker.clock.data.repository
+
+import androidx.test.filters.SmallTest
+import com.android.customization.picker.clock.data.repository.PluginScanTracker.Companion.PLUGIN_SCAN_TIMEOUT_MILLIS
+import com.google.common.truth.Truth.assertThat
+import java.util.concurrent.Executor
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@OptIn(ExperimentalCoroutinesApi::class)
+@SmallTest
+@RunWith(RobolectricTestRunner::class)
+class PluginScanTrackerTest {
+
+    private val testScope = TestScope()
+    // Plugin loading tasks queued by the plugin manager, run by the tests one at a time.
+    private val pluginTasks = ArrayDeque<Runnable>()
+    private val underTest = PluginScanTracker(mainExecutor = Executor { it.run() })
+    private val pluginExecutor = underTest.track(Executor { pluginTasks.addLast(it) })
+
+    @Test
+    fun isSettled_trueRightAwayWithoutPluginTasks() =
+        testScope.runTest {
+            underTest.onScanStarted(backgroundScope)
+
+            assertThat(underTest.isSettled.value).isTrue()
+        }
+
+    @Test
+    fun isSettled_trueOnceAllPluginTasksFinish() =
+        testScope.runTest {
+            pluginExecutor.execute {}
+            pluginExecutor.execute {}
+            underTest.onScanStarted(backgroundScope)
+            runCurrent()
+            assertThat(underTest.isSettled.value).isFalse()
+
+            pluginTasks.removeFirst().run()
+            assertThat(underTest.isSettled.value).isFalse()
+
+            pluginTasks.removeFirst().run()
+            assertThat(underTest.isSettled.value).isTrue()
+        }
+
+    @Test
+    fun isSettled_trueOnceAFailingPluginTaskFinishes() =
+        testScope.runTest {
+            pluginExecutor.execute { throw IllegalStateException("Plugin failed to load") }
+            underTest.onScanStarted(backgroundScope)
+
+            runCatching { pluginTasks.removeFirst().run() }
+
+            assertThat(underTest.isSettled.value).isTrue()
+        }
+
+    @Test
+    fun isSettled_trueAfterTimeoutWhenAPluginTaskNeverFinishes() =
+        testScope.runTest {
+            pluginExecutor.execute {}
+            underTest.onScanStarted(backgroundScope)
+
+            advanceTimeBy(PLUGIN_SCAN_TIMEOUT_MILLIS - 1)
+            runCurrent()
+            assertThat(underTest.isSettled.value).isFalse()
+
+            advanceTimeBy(1)
+            runCurrent()
+            assertThat(underTest.isSettled.value).isTrue()
+        }
+}
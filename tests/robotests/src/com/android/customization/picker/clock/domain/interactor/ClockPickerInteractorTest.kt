@@ -3,6 +3,7 @@ package com.android.customization.picker.clock.domain.interactor
 import androidx.test.filters.SmallTest
 import com.android.customization.picker.clock.data.repository.FakeClockPickerRepository
 import com.android.customization.picker.clock.shared.ClockSize
+import com.android.customization.picker.clock.shared.model.ClockSnapshotModel
 import com.android.wallpaper.testing.FakeSnapshotStore
 import com.android.wallpaper.testing.collectLastValue
 import com.google.common.truth.Truth
@@ -80,4 +81,55 @@ class ClockPickerInteractorTest {
             .isEqualTo(FakeClockPickerRepository.CLOCK_COLOR_TONE_PROGRESS)
         Truth.assertThat(observedSeedColor()).isEqualTo(FakeClockPickerRepository.SEED_COLOR)
     }
+
+    @Test
+    fun setClockOption() = runTest {
+        val observedSelectedClockId = collectLastValue(underTest.selectedClockId)
+        val observedClockSize = collectLastValue(underTest.selectedClockSize)
+        val observedSelectedColor = collectLastValue(underTest.selectedColorId)
+        val observedColorToneProgress = collectLastValue(underTest.colorToneProgress)
+        val observedSeedColor = collectLastValue(underTest.seedColor)
+        underTest.setClockOption(
+            ClockSnapshotModel(
+                clockId = FakeClockPickerRepository.fakeClocks[1].clockId,
+                clockSize = ClockSize.DYNAMIC,
+                selectedColorId = FakeClockPickerRepository.CLOCK_COLOR_ID,
+                colorToneProgress = FakeClockPickerRepository.CLOCK_COLOR_TONE_PROGRESS,
+                seedColor = FakeClockPickerRepository.SEED_COLOR,
+            )
+        )
+        Truth.assertThat(observedSelectedClockId())
+            .isEqualTo(FakeClockPickerRepository.fakeClocks[1].clockId)
+        Truth.assertThat(observedClockSize()).isEqualTo(ClockSize.DYNAMIC)
+        Truth.assertThat(observedSelectedColor())
+            .isEqualTo(FakeClockPickerRepository.CLOCK_COLOR_ID)
+        Truth.assertThat(observedColorToneProgress())
+            .isEqualTo(FakeClockPickerRepository.CLOCK_COLOR_TONE_PROGRESS)
+        Truth.assertThat(observedSeedColor()).isEqualTo(FakeClockPickerRepository.SEED_COLOR)
+    }
+
+    @Test
+    fun getCurrentClockToRestore_overridesCurrentOptionWithLatestOne() = runTest {
+        underTest.setClockColor(
+            FakeClockPickerRepository.CLOCK_COLOR_ID,
+            FakeClockPickerRepository.CLOCK_COLOR_TONE_PROGRESS,
+            FakeClockPickerRepository.SEED_COLOR,
+        )
+
+        val option =
+            underTest.getCurrentClockToRestore(
+                ClockSnapshotModel(clockId = FakeClockPickerRepository.fakeClocks[2].clockId)
+            )
+
+        Truth.assertThat(option)
+            .isEqualTo(
+                ClockSnapshotModel(
+                    clockId = FakeClockPickerRepository.fakeClocks[2].clockId,
+                    clockSize = ClockSize.SMALL,
+                    selectedColorId = FakeClockPickerRepository.CLOCK_COLOR_ID,
+                    colorToneProgress = FakeClockPickerRepository.CLOCK_COLOR_TONE_PROGRESS,
+                    seedColor = FakeClockPickerRepository.SEED_COLOR,
+                )
+            )
+    }
 }
@@ -1,9 +1,11 @@
 package com.android.customization.picker.clock.ui
 
 import android.content.res.Resources
+import android.graphics.Bitmap
 import android.view.View
 import androidx.lifecycle.LifecycleOwner
 import com.android.customization.picker.clock.data.repository.FakeClockPickerRepository
+import com.android.customization.picker.clock.shared.model.ClockMetadataModel
 import com.android.customization.picker.clock.ui.FakeClockViewFactory.Companion.fakeClocks
 import com.android.customization.picker.clock.ui.view.ClockViewFactory
 import com.android.systemui.plugins.clocks.ClockConfig
@@ -17,8 +19,25 @@ import java.io.PrintWriter
  */
 class FakeClockViewFactory(
     val clockControllers: MutableMap<String, ClockController> = fakeClocks.toMutableMap(),
+    /** Whether [prewarm] creates the clocks, or only records the clocks it's asked to create. */
+    private val isPrewarmCreatingClocks: Boolean = true,
 ) : ClockViewFactory {
 
+    /** The clocks whose controller has been requested, in order. */
+    val createdClockIds = mutableListOf<String>()
+
+    /** The clocks passed to [prewarm], in order. */
+    val prewarmedClockIds = mutableListOf<String>()
+
+    /** The clocks last set through [setPinnedClocks]. */
+    var pinnedClockIds: Set<String> = emptySet()
+        private set
+
+    /** The snapshots returned by [getLargeViewSnapshot], none by default. */
+    val largeViewSnapshots = mutableMapOf<String, Bitmap>()
+
+    private val largeViewSnapshotsInvalidatedListeners = mutableSetOf<() -> Unit>()
+
     class FakeClockController(
         override var config: ClockConfig,
     ) : ClockController {
@@ -37,7 +56,26 @@ class FakeClockViewFactory(
         override fun dump(pw: PrintWriter) = TODO("Not yet implemented")
     }
 
-    override fun getController(clockId: String): ClockController = clockControllers.get(clockId)!!
+    override fun getController(clockId: String): ClockController {
+        if (clockId !in createdClockIds) {
+            createdClockIds.add(clockId)
+        }
+        return clockControllers.get(clockId)!!
+    }
+
+    override fun getConfig(clockId: String): ClockConfig? =
+        clockControllers[clockId]?.takeIf { clockId in createdClockIds }?.config
+
+    override suspend fun prewarm(clockIds: Collection<String>) {
+        prewarmedClockIds.addAll(clockIds)
+        if (isPrewarmCreatingClocks) {
+            clockIds.forEach { getController(it) }
+        }
+    }
+
+    override fun setPinnedClocks(clockIds: Set<String>) {
+        pinnedClockIds = clockIds
+    }
 
     override fun getLargeView(clockId: String): View {
         TODO("Not yet implemented")
@@ -47,6 +85,22 @@ class FakeClockViewFactory(
         TODO("Not yet implemented")
     }
 
+    override fun getLargeViewSnapshot(clockId: String, width: Int): Bitmap? =
+        largeViewSnapshots[clockId]
+
+    override fun addLargeViewSnapshotsInvalidatedListener(listener: () -> Unit) {
+        largeViewSnapshotsInvalidatedListeners.add(listener)
+    }
+
+    override fun removeLargeViewSnapshotsInvalidatedListener(listener: () -> Unit) {
+        largeViewSnapshotsInvalidatedListeners.remove(listener)
+    }
+
+    /** Notifies the listeners that the snapshots were dropped, as if the clocks had changed. */
+    fun invalidateLargeViewSnapshots() {
+        largeViewSnapshotsInvalidatedListeners.toList().forEach { it() }
+    }
+
     override fun updateColorForAllClocks(seedColor: Int?) {
         TODO("Not yet implemented")
     }
@@ -76,8 +130,11 @@ class FakeClockViewFactory(
     }
 
     companion object {
-        val fakeClocks =
-            FakeClockPickerRepository.fakeClocks
+        val fakeClocks = createFakeClocks(FakeClockPickerRepository.fakeClocks)
+
+        /** Creates the controllers of the given clocks, by clock id. */
+        fun createFakeClocks(clocks: List<ClockMetadataModel>): Map<String, ClockController> =
+            clocks
                 .map { clock ->
                     clock.clockId to
                         FakeClockController(
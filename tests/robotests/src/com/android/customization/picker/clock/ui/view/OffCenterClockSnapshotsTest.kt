@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.customization.picker.clock.ui.view
+
+import android.graphics.Bitmap
+import android.graphics.drawable.BitmapDrawable
+import android.view.View
+import android.widget.ImageView
+import androidx.test.filters.SmallTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.android.customization.picker.clock.data.repository.FakeClockPickerRepository
+import com.android.customization.picker.clock.ui.FakeClockViewFactory
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@SmallTest
+@RunWith(RobolectricTestRunner::class)
+class OffCenterClockSnapshotsTest {
+
+    private lateinit var clockViewFactory: FakeClockViewFactory
+    private lateinit var clockHostView: ClockHostView
+    private lateinit var underTest: OffCenterClockSnapshots
+    // The clocks passed to the callback of refresh, to be shown live.
+    private val liveClockIds = mutableListOf<String>()
+
+    @Before
+    fun setUp() {
+        clockViewFactory = FakeClockViewFactory()
+        clockHostView =
+            ClockHostView(InstrumentationRegistry.getInstrumentation().targetContext, null).apply {
+                id = View.generateViewId()
+            }
+        underTest = OffCenterClockSnapshots(clockViewFactory)
+        // Refreshes the snapshots whenever the factory drops them, as the carousel does.
+        clockViewFactory.addLargeViewSnapshotsInvalidatedListener {
+            underTest.refresh { _, clockId -> liveClockIds.add(clockId) }
+        }
+    }
+
+    @Test
+    fun getView_showsTheSnapshot() {
+        val snapshot = createSnapshot()
+        clockViewFactory.largeViewSnapshots[CLOCK_ID] = snapshot
+
+        val view = underTest.getView(clockHostView, CLOCK_ID, SNAPSHOT_WIDTH)
+
+        assertThat(view?.shownBitmap()).isSameInstanceAs(snapshot)
+    }
+
+    @Test
+    fun getView_withoutSnapshot_returnsNull() {
+        assertThat(underTest.getView(clockHostView, CLOCK_ID, SNAPSHOT_WIDTH)).isNull()
+    }
+
+    @Test
+    fun snapshotsInvalidated_showsTheNewSnapshot() {
+        clockViewFactory.largeViewSnapshots[CLOCK_ID] = createSnapshot()
+        val view = checkNotNull(underTest.getView(clockHostView, CLOCK_ID, SNAPSHOT_WIDTH))
+        clockHostView.addView(view)
+
+        val newSnapshot = createSnapshot()
+        clockViewFactory.largeViewSnapshots[CLOCK_ID] = newSnapshot
+        clockViewFactory.invalidateLargeViewSnapshots()
+
+        assertThat(view.shownBitmap()).isSameInstanceAs(newSnapshot)
+        assertThat(liveClockIds).isEmpty()
+    }
+
+    @Test
+    fun snapshotsInvalidated_withoutNewSnapshot_showsTheLiveClock() {
+        clockViewFactory.largeViewSnapshots[CLOCK_ID] = createSnapshot()
+        clockHostView.addView(underTest.getView(clockHostView, CLOCK_ID, SNAPSHOT_WIDTH))
+
+        clockViewFactory.largeViewSnapshots.clear()
+        clockViewFactory.invalidateLargeViewSnapshots()
+
+        assertThat(liveClockIds).containsExactly(CLOCK_ID)
+    }
+
+    @Test
+    fun snapshotsInvalidated_leavesTheSnapshotsNoLongerShown() {
+        val snapshot = createSnapshot()
+        clockViewFactory.largeViewSnapshots[CLOCK_ID] = snapshot
+        val view = checkNotNull(underTest.getView(clockHostView, CLOCK_ID, SNAPSHOT_WIDTH))
+
+        clockViewFactory.largeViewSnapshots[CLOCK_ID] = createSnapshot()
+        clockViewFactory.invalidateLargeViewSnapshots()
+
+        assertThat(view.shownBitmap()).isSameInstanceAs(snapshot)
+        assertThat(liveClockIds).isEmpty()
+    }
+
+    private fun createSnapshot(): Bitmap =
+        Bitmap.createBitmap(SNAPSHOT_WIDTH, SNAPSHOT_WIDTH * 2, Bitmap.Config.ARGB_8888)
+
+    private fun ImageView.shownBitmap(): Bitmap? = (drawable as? BitmapDrawable)?.bitmap
+
+    companion object {
+        private const val CLOCK_ID = FakeClockPickerRepository.CLOCK_ID_0
+        private const val SNAPSHOT_WIDTH = 40
+    }
+}
@@ -33,8 +33,9 @@ import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.runBlocking
 import kotlinx.coroutines.test.StandardTestDispatcher
-import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.advanceUntilIdle
 import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.runCurrent
 import kotlinx.coroutines.test.runTest
 import kotlinx.coroutines.test.setMain
 import org.junit.After
@@ -90,13 +91,111 @@ class ClockCarouselViewModelTest {
                 logger = TestThemesUserEventLogger(),
             )
         val observedSelectedIndex = collectLastValue(underTest.selectedIndex)
-        advanceTimeBy(ClockCarouselViewModel.CLOCKS_EVENT_UPDATE_DELAY_MILLIS)
+        runCurrent()
 
         underTest.setSelectedClock(FakeClockPickerRepository.fakeClocks[2].clockId)
 
         assertThat(observedSelectedIndex()).isEqualTo(2)
     }
 
+    @Test
+    fun allClocks_doesNotCreateClockControllers() = runTest {
+        val clockFactoryWithoutClocks =
+            FakeClockViewFactory(
+                clockControllers = mutableMapOf(),
+                isPrewarmCreatingClocks = false,
+            )
+        underTest =
+            ClockCarouselViewModel(
+                getClockPickerInteractor(repositoryWithMultipleClocks),
+                backgroundDispatcher = testDispatcher,
+                clockViewFactory = clockFactoryWithoutClocks,
+                resources = InstrumentationRegistry.getInstrumentation().targetContext.resources,
+                logger = TestThemesUserEventLogger(),
+            )
+        val observedClocks = collectLastValue(underTest.allClocks)
+        runCurrent()
+
+        assertThat(observedClocks()?.map { it.clockId })
+            .containsExactlyElementsIn(FakeClockPickerRepository.fakeClocks.map { it.clockId })
+            .inOrder()
+    }
+
+    @Test
+    fun allClocks_describesClocksWithTheirConfig() = runTest {
+        underTest =
+            ClockCarouselViewModel(
+                getClockPickerInteractor(repositoryWithMultipleClocks),
+                backgroundDispatcher = testDispatcher,
+                clockViewFactory = clockViewFactory,
+                resources = InstrumentationRegistry.getInstrumentation().targetContext.resources,
+                logger = TestThemesUserEventLogger(),
+            )
+        val observedClocks = collectLastValue(underTest.allClocks)
+        runCurrent()
+        // The clock is created when it's populated into the carousel.
+        clockViewFactory.getController(FakeClockPickerRepository.CLOCK_ID_0)
+
+        assertThat(observedClocks()?.first()?.contentDescription)
+            .contains("Desc: ${FakeClockPickerRepository.CLOCK_ID_0}")
+    }
+
+    @Test
+    fun allClocks_describingClocksDoesNotCreateThem() = runTest {
+        val factory = FakeClockViewFactory(isPrewarmCreatingClocks = false)
+        underTest =
+            ClockCarouselViewModel(
+                getClockPickerInteractor(repositoryWithMultipleClocks),
+                backgroundDispatcher = testDispatcher,
+                clockViewFactory = factory,
+                resources = InstrumentationRegistry.getInstrumentation().targetContext.resources,
+                logger = TestThemesUserEventLogger(),
+            )
+        val observedClocks = collectLastValue(underTest.allClocks)
+        runCurrent()
+
+        assertThat(observedClocks()?.map { it.contentDescription }).isNotEmpty()
+        assertThat(factory.createdClockIds).isEmpty()
+    }
+
+    @Test
+    fun setSelectedClock_createsOnlyTheClocksTheCarouselCanSwipeTo() = runTest {
+        // More clocks than the selected one and its neighbors on each side.
+        val clocks =
+            (0 until 8).map { index ->
+                ClockMetadataModel(
+                    clockId = "clock$index",
+                    isSelected = index == 0,
+                    selectedColorId = null,
+                    colorToneProgress = ClockMetadataModel.DEFAULT_COLOR_TONE_PROGRESS,
+                    seedColor = null,
+                )
+            }
+        val factory =
+            FakeClockViewFactory(FakeClockViewFactory.createFakeClocks(clocks).toMutableMap())
+        underTest =
+            ClockCarouselViewModel(
+                getClockPickerInteractor(FakeClockPickerRepository(clocks)),
+                backgroundDispatcher = testDispatcher,
+                clockViewFactory = factory,
+                resources = InstrumentationRegistry.getInstrumentation().targetContext.resources,
+                logger = TestThemesUserEventLogger(),
+            )
+        collectLastValue(underTest.selectedIndex)
+        advanceUntilIdle()
+
+        // The carousel wraps around, the clocks before the first one are the last ones.
+        assertThat(factory.createdClockIds)
+            .containsExactly("clock6", "clock7", "clock0", "clock1", "clock2")
+
+        underTest.setSelectedClock("clock1")
+        advanceUntilIdle()
+
+        assertThat(factory.createdClockIds)
+            .containsExactly("clock6", "clock7", "clock0", "clock1", "clock2", "clock3")
+        assertThat(factory.createdClockIds).containsNoneOf("clock4", "clock5")
+    }
+
     private fun getClockPickerInteractor(repository: ClockPickerRepository): ClockPickerInteractor {
         return ClockPickerInteractor(
                 repository = repository,
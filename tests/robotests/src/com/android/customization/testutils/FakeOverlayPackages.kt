@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.testutils
+
+import android.content.Context
+import android.content.ContextWrapper
+import android.content.om.OverlayInfo
+import android.content.om.OverlayManager
+import android.content.pm.ApplicationInfo
+import android.content.pm.PackageInfo
+import android.content.pm.PackageManager
+import android.content.pm.PackageManager.NameNotFoundException
+import android.content.res.Resources
+import android.graphics.drawable.Drawable
+import android.os.UserHandle
+import com.android.customization.model.OverlayPackageMonitor
+import com.android.customization.model.ResourceConstants
+import com.android.customization.model.theme.OverlayManagerCompat
+import org.mockito.ArgumentMatchers.any
+import org.mockito.ArgumentMatchers.anyInt
+import org.mockito.ArgumentMatchers.anyString
+import org.mockito.Mockito.mock
+import org.mockito.Mockito.`when` as whenever
+
+/**
+ * Overlay packages that can be installed and removed while a provider is running. Unlike
+ * [OverlayManagerMocks], only the system services are faked: providers are given a real
+ * [OverlayManagerCompat], so its caching is part of what's tested.
+ *
+ * Use [context] to build the provider under test, [overlayManagerCompat] as its overlay manager,
+ * then [install] and [uninstall] overlays, which notifies [OverlayPackageMonitor] like the package
+ * broadcasts do.
+ */
+class FakeOverlayPackages(baseContext: Context) {
+
+    private class FakeOverlay(
+        val info: OverlayInfo,
+        val resources: Map<String, Any>,
+        val lastUpdateTime: Long,
+    )
+
+    private val overlays = mutableMapOf<String, FakeOverlay>()
+    private val monitor = OverlayPackageMonitor.getInstance(baseContext)
+
+    private val overlayManager: OverlayManager =
+        mock(OverlayManager::class.java).also { overlayManager ->
+            whenever(overlayManager.getOverlayInfosForTarget(anyString(), any()))
+                .thenAnswer { invocation ->
+                    overlays.values
+                        .map { it.info }
+                        .filter { it.targetPackageName == invocation.getArgument<String>(0) }
+                }
+            whenever(overlayManager.getOverlayInfo(anyString(), any()))
+                .thenAnswer { invocation -> overlays[invocation.getArgument<String>(0)]?.info }
+        }
+
+    private val packageManager: PackageManager =
+        mock(PackageManager::class.java).also { pm ->
+            whenever(pm.getPackageInfo(anyString(), anyInt())).thenAnswer { invocation ->
+                val overlay = getOverlay(invocation.getArgument(0))
+                PackageInfo().apply {
+                    packageName = overlay.info.packageName
+                    lastUpdateTime = overlay.lastUpdateTime
+                }
+            }
+            whenever(pm.getApplicationInfo(anyString(), anyInt())).thenAnswer { invocation ->
+                val overlay = getOverlay(invocation.getArgument(0))
+                ApplicationInfo().apply {
+                    packageName = overlay.info.packageName
+                    nonLocalizedLabel = overlay.info.packageName
+                }
+            }
+            whenever(pm.getResourcesForApplication(anyString())).thenAnswer { invocation ->
+                createResources(getOverlay(invocation.getArgument(0)))
+            }
+            whenever(pm.getApplicationIcon(anyString())).thenAnswer { invocation ->
+                throw NameNotFoundException(invocation.getArgument(0))
+            }
+        }
+
+    /** A context whose package manager knows about the installed overlays. */
+    val context: Context =
+        object : ContextWrapper(baseContext) {
+            override fun getPackageManager() = this@FakeOverlayPackages.packageManager
+        }
+
+    val overlayManagerCompat =
+        OverlayManagerCompat(overlayManager, ResourceConstants.getPackagesToOverlay(baseContext))
+
+    /**
+     * Installs, or updates, the given overlay of [targetPackage], with the given resources keyed by
+     * name.
+     */
+    fun install(
+        packageName: String,
+        category: String,
+        resources: Map<String, Any> = emptyMap(),
+        targetPackage: String = ResourceConstants.ANDROID_PACKAGE,
+        lastUpdateTime: Long = 0L,
+    ) {
+        val info =
+            OverlayInfo(
+                packageName,
+                targetPackage,
+                /* targetOverlayableName= */ null,
+                category,
+                /* baseCodePath= */ "",
+                OverlayInfo.STATE_DISABLED,
+                UserHandle.myUserId(),
+                /* priority= */ 0,
+                /* isMutable= */ true,
+            )
+        overlays[packageName] = FakeOverlay(info, resources, lastUpdateTime)
+        monitor.notifyPackageChanged(packageName)
+    }
+
+    fun uninstall(packageName: String) {
+        overlays.remove(packageName)
+        monitor.notifyPackageChanged(packageName)
+    }
+
+    private fun getOverlay(packageName: String): FakeOverlay {
+        return overlays[packageName] ?: throw NameNotFoundException(packageName)
+    }
+
+    private fun createResources(overlay: FakeOverlay): Resources {
+        // Resource ids are the position of the resource's name, starting from 1 as 0 isn't valid.
+        val names = overlay.resources.keys.toList()
+        fun valueOf(id: Int): Any =
+            names.getOrNull(id - 1)?.let { overlay.resources[it] }
+                ?: throw Resources.NotFoundException("No resource with id $id")
+        return mock(Resources::class.java).also { res ->
+            whenever(res.getIdentifier(anyString(), anyString(), anyString())).thenAnswer {
+                names.indexOf(it.getArgument<String>(0)) + 1
+            }
+            whenever(res.getString(anyInt())).thenAnswer { valueOf(it.getArgument(0)) as String }
+            whenever(res.getDimensionPixelOffset(anyInt())).thenAnswer {
+                valueOf(it.getArgument(0)) as Int
+            }
+            whenever(res.getDrawable(anyInt(), any())).thenAnswer {
+                valueOf(it.getArgument(0)) as Drawable
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.widget
+
+import android.graphics.Color
+import android.graphics.HardwareRenderer
+import android.graphics.PixelFormat
+import android.graphics.RenderNode
+import android.graphics.drawable.ColorDrawable
+import android.graphics.drawable.GradientDrawable
+import android.hardware.HardwareBuffer
+import android.media.ImageReader
+import android.os.Bundle
+import android.util.Log
+import android.util.PathParser
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.MediumTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.android.customization.widget.DynamicAdaptiveIconDrawable.RenderMode
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Compares the cost of a frame showing a [DynamicAdaptiveIconDrawable] whose layers are invalidated
+ * every frame, for each [RenderMode]. Each frame is recorded and then rendered by a
+ * [HardwareRenderer], waiting for it to be presented, so both the UI thread and the RenderThread
+ * work are counted. The timings are logged and sent as instrumentation status metrics.
+ */
+@MediumTest
+@RunWith(AndroidJUnit4::class)
+class DynamicAdaptiveIconDrawableBenchmarkTest {
+
+    @Test
+    fun drawAfterInvalidation_reportsFrameCostPerRenderMode() {
+        val bitmapShaderNanos = measureFrameNanos(RenderMode.BITMAP_SHADER)
+        val clipPathNanos = measureFrameNanos(RenderMode.CLIP_PATH)
+
+        // Timings depend on the device and its load, they're reported rather than compared.
+        Log.i(
+            TAG,
+            "Per-frame cost: BITMAP_SHADER=${bitmapShaderNanos}ns" +
+                " CLIP_PATH=${clipPathNanos}ns"
+        )
+        InstrumentationRegistry.getInstrumentation()
+            .sendStatus(
+                /* resultCode= */ 0,
+                Bundle().apply {
+                    putLong(METRIC_BITMAP_SHADER_FRAME_NANOS, bitmapShaderNanos)
+                    putLong(METRIC_CLIP_PATH_FRAME_NANOS, clipPathNanos)
+                },
+            )
+    }
+
+    private fun measureFrameNanos(@RenderMode renderMode: Int): Long {
+        val drawable =
+            DynamicAdaptiveIconDrawable(
+                ColorDrawable(Color.BLUE),
+                GradientDrawable().apply {
+                    shape = GradientDrawable.OVAL
+                    setColor(Color.WHITE)
+                },
+                PathParser.createPathFromPathData(SQUIRCLE_MASK),
+                renderMode,
+            )
+        drawable.setBounds(0, 0, ICON_SIZE_PX, ICON_SIZE_PX)
+        val renderNode =
+            RenderNode("benchmark").apply { setPosition(0, 0, ICON_SIZE_PX, ICON_SIZE_PX) }
+        val imageReader =
+            ImageReader.newInstance(
+                ICON_SIZE_PX,
+                ICON_SIZE_PX,
+                PixelFormat.RGBA_8888,
+                MAX_IMAGES,
+                HardwareBuffer.USAGE_GPU_COLOR_OUTPUT or HardwareBuffer.USAGE_GPU_SAMPLED_IMAGE,
+            )
+        val renderer =
+            HardwareRenderer().apply {
+                setContentRoot(renderNode)
+                setSurface(imageReader.surface)
+            }
+        try {
+            repeat(WARM_UP_FRAMES) { drawFrame(drawable, renderNode, renderer, imageReader) }
+            val start = System.nanoTime()
+            repeat(MEASURED_FRAMES) { drawFrame(drawable, renderNode, renderer, imageReader) }
+            return (System.nanoTime() - start) / MEASURED_FRAMES
+        } finally {
+            renderer.destroy()
+            imageReader.close()
+            drawable.releaseLayersBitmap()
+        }
+    }
+
+    private fun drawFrame(
+        drawable: DynamicAdaptiveIconDrawable,
+        renderNode: RenderNode,
+        renderer: HardwareRenderer,
+        imageReader: ImageReader,
+    ) {
+        // Simulates an animating layer, e.g. a ripple or a level change.
+        drawable.foreground.invalidateSelf()
+        val canvas = renderNode.beginRecording()
+        try {
+            drawable.draw(canvas)
+        } finally {
+            renderNode.endRecording()
+        }
+        renderer.createRenderRequest().setWaitForPresent(true).syncAndDraw()
+        imageReader.acquireLatestImage()?.close()
+    }
+
+    companion object {
+        private const val TAG = "DynamicAdaptiveIconDrawableBenchmarkTest"
+        private const val METRIC_BITMAP_SHADER_FRAME_NANOS = "bitmap_shader_frame_nanos"
+        private const val METRIC_CLIP_PATH_FRAME_NANOS = "clip_path_frame_nanos"
+        private const val ICON_SIZE_PX = 192
+        private const val MAX_IMAGES = 2
+        private const val WARM_UP_FRAMES = 50
+        private const val MEASURED_FRAMES = 500
+        private const val SQUIRCLE_MASK =
+            "M50,0 C10,0 0,10 0,50 0,90 10,100 50,100 90,100 100,90 100,50 100,10 90,0 50,0 Z"
+    }
+}
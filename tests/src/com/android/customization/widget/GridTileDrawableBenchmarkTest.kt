@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.widget
+
+import android.graphics.Canvas
+import android.graphics.Matrix
+import android.graphics.Paint
+import android.graphics.Path
+import android.graphics.RenderNode
+import android.os.Bundle
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.MediumTest
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Compares the UI thread cost of drawing a large [GridTileDrawable] (8x8, as on foldables) with its
+ * precomposed grid path against drawing every cell separately, that is the time it takes to record
+ * a frame's display list. The timings are logged and sent as instrumentation status metrics.
+ */
+@MediumTest
+@RunWith(AndroidJUnit4::class)
+class GridTileDrawableBenchmarkTest {
+
+    @Test
+    fun draw_8x8Grid_reportsPrecomposedAndPerCellDrawCost() {
+        val drawable = GridTileDrawable(GRID_SIZE, GRID_SIZE, SQUIRCLE_MASK)
+        drawable.setBounds(0, 0, TILE_SIZE_PX, TILE_SIZE_PX)
+        val precomposedNanos = measureFrameNanos { drawable.draw(it) }
+
+        val cellPath = Path()
+        val cellSize = TILE_SIZE_PX.toFloat() / GRID_SIZE
+        val scale = (cellSize - 2 * SPACE_BETWEEN_ICONS) / PATH_SIZE
+        PathDataCache.get(SQUIRCLE_MASK)
+            .transform(Matrix().apply { setScale(scale, scale) }, cellPath)
+        val paint = Paint(Paint.ANTI_ALIAS_FLAG)
+        val perCellNanos = measureFrameNanos { canvas ->
+            for (r in 0 until GRID_SIZE) {
+                for (c in 0 until GRID_SIZE) {
+                    val saveCount = canvas.save()
+                    canvas.translate(
+                        c * cellSize + SPACE_BETWEEN_ICONS,
+                        r * cellSize + SPACE_BETWEEN_ICONS
+                    )
+                    canvas.drawPath(cellPath, paint)
+                    canvas.restoreToCount(saveCount)
+                }
+            }
+        }
+
+        // Timings depend on the device and its load, they're reported rather than compared.
+        Log.i(
+            TAG,
+            "Per-frame draw cost of a ${GRID_SIZE}x$GRID_SIZE grid: " +
+                "precomposed=${precomposedNanos}ns per-cell=${perCellNanos}ns"
+        )
+        InstrumentationRegistry.getInstrumentation()
+            .sendStatus(
+                /* resultCode= */ 0,
+                Bundle().apply {
+                    putLong(METRIC_PRECOMPOSED_FRAME_NANOS, precomposedNanos)
+                    putLong(METRIC_PER_CELL_FRAME_NANOS, perCellNanos)
+                },
+            )
+    }
+
+    private fun measureFrameNanos(drawFrame: (Canvas) -> Unit): Long {
+        val renderNode =
+            RenderNode("benchmark").apply { setPosition(0, 0, TILE_SIZE_PX, TILE_SIZE_PX) }
+        repeat(WARM_UP_FRAMES) { recordFrame(renderNode, drawFrame) }
+        val start = System.nanoTime()
+        repeat(MEASURED_FRAMES) { recordFrame(renderNode, drawFrame) }
+        return (System.nanoTime() - start) / MEASURED_FRAMES
+    }
+
+    private fun recordFrame(renderNode: RenderNode, drawFrame: (Canvas) -> Unit) {
+        val canvas = renderNode.beginRecording()
+        try {
+            drawFrame(canvas)
+        } finally {
+            renderNode.endRecording()
+        }
+    }
+
+    companion object {
+        private const val TAG = "GridTileDrawableBenchmarkTest"
+        private const val METRIC_PRECOMPOSED_FRAME_NANOS = "precomposed_frame_nanos"
+        private const val METRIC_PER_CELL_FRAME_NANOS = "per_cell_frame_nanos"
+        private const val GRID_SIZE = 8
+        private const val TILE_SIZE_PX = 400
+        private const val PATH_SIZE = 100f
+        private const val SPACE_BETWEEN_ICONS = 6f
+        private const val WARM_UP_FRAMES = 50
+        private const val MEASURED_FRAMES = 500
+        private const val SQUIRCLE_MASK =
+            "M50,0 C10,0 0,10 0,50 0,90 10,100 50,100 90,100 100,90 100,50 100,10 90,0 50,0 Z"
+    }
+}
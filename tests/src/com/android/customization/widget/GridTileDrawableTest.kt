@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.android.customization.widget
+
+import android.graphics.Canvas
+import android.graphics.Paint
+import android.graphics.Path
+import android.graphics.RectF
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class GridTileDrawableTest {
+
+    // Records the paths drawn, as they are when drawn.
+    private val drawnPaths = mutableListOf<Path>()
+    private val drawnPathBounds = mutableListOf<RectF>()
+    private val canvas =
+        object : Canvas() {
+            override fun drawPath(path: Path, paint: Paint) {
+                drawnPaths.add(path)
+                drawnPathBounds.add(RectF().also { path.computeBounds(it, /* exact= */ true) })
+            }
+        }
+
+    @Test
+    fun draw_drawsTheWholeGridAsOnePath() {
+        val drawable = GridTileDrawable(GRID_SIZE, GRID_SIZE, SQUIRCLE_MASK)
+        drawable.setBounds(0, 0, TILE_SIZE_PX, TILE_SIZE_PX)
+
+        drawable.draw(canvas)
+
+        assertThat(drawnPaths).hasSize(1)
+        // The first and last cells' shapes, inset by the space around each icon.
+        val bounds = drawnPathBounds.single()
+        assertThat(bounds.left).isWithin(1f).of(SPACE_BETWEEN_ICONS)
+        assertThat(bounds.top).isWithin(1f).of(SPACE_BETWEEN_ICONS)
+        assertThat(bounds.right).isWithin(1f).of(TILE_SIZE_PX - SPACE_BETWEEN_ICONS)
+        assertThat(bounds.bottom).isWithin(1f).of(TILE_SIZE_PX - SPACE_BETWEEN_ICONS)
+    }
+
+    @Test
+    fun draw_reusesThePathBuiltWhenTheBoundsChanged() {
+        val drawable = GridTileDrawable(GRID_SIZE, GRID_SIZE, SQUIRCLE_MASK)
+        drawable.setBounds(0, 0, TILE_SIZE_PX, TILE_SIZE_PX)
+
+        drawable.draw(canvas)
+        drawable.draw(canvas)
+
+        assertThat(drawnPaths).hasSize(2)
+        assertThat(drawnPaths[1]).isSameInstanceAs(drawnPaths[0])
+        assertThat(drawnPathBounds[1]).isEqualTo(drawnPathBounds[0])
+    }
+
+    @Test
+    fun setBounds_rebuildsThePathForTheNewBounds() {
+        val drawable = GridTileDrawable(GRID_SIZE, GRID_SIZE, SQUIRCLE_MASK)
+        drawable.setBounds(0, 0, TILE_SIZE_PX, TILE_SIZE_PX)
+        drawable.draw(canvas)
+
+        drawable.setBounds(0, 0, TILE_SIZE_PX / 2, TILE_SIZE_PX / 2)
+        drawable.draw(canvas)
+
+        assertThat(drawnPaths[1]).isSameInstanceAs(drawnPaths[0])
+        assertThat(drawnPathBounds[1].right)
+            .isWithin(1f)
+            .of(TILE_SIZE_PX / 2 - SPACE_BETWEEN_ICONS)
+    }
+
+    companion object {
+        private const val GRID_SIZE = 8
+        private const val TILE_SIZE_PX = 400
+        // The space GridTileDrawable leaves around each icon.
+        private const val SPACE_BETWEEN_ICONS = 6f
+        private const val SQUIRCLE_MASK =
+            "M50,0 C10,0 0,10 0,50 0,90 10,100 50,100 90,100 100,90 100,50 100,10 90,0 50,0 Z"
+    }
+}